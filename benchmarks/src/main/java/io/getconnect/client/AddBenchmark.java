@@ -0,0 +1,123 @@
+package io.getconnect.client;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.getconnect.client.exceptions.ConnectException;
+import io.getconnect.client.store.EventStore;
+
+/**
+ * Throughput of {@link ConnectClient#add(String, Map)} as the number of threads adding events grows.
+ * Events go to a store that discards them, so only the client's ingestion path is measured.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AddBenchmark {
+    private ConnectClient client;
+
+    @State(Scope.Thread)
+    public static class ThreadEvents {
+        Map<String, Object> eventData;
+        EventBuilder builder;
+        String[] names;
+        String[] values;
+
+        @Setup
+        public void setUp() {
+            eventData = BenchmarkEvents.createEventData(10);
+            builder = new EventBuilder();
+            names = BenchmarkEvents.createPropertyNames(10);
+            values = BenchmarkEvents.createStringValues(10);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        client = new ConnectClient("project", "key", "http://localhost", new DiscardingEventStore());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void add1Thread(ThreadEvents events) throws ConnectException {
+        add(events);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void add4Threads(ThreadEvents events) throws ConnectException {
+        add(events);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void add16Threads(ThreadEvents events) throws ConnectException {
+        add(events);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void addWithBuilder4Threads(ThreadEvents events) throws ConnectException {
+        client.add("test", BenchmarkEvents.putEventData(events.builder, events.names, events.values));
+    }
+
+    private void add(ThreadEvents events) throws ConnectException {
+        // The event adds its ID to the map, so each event gets a copy.
+        client.add("test", new HashMap<String, Object>(events.eventData));
+    }
+
+    private static class DiscardingEventStore implements EventStore {
+        private final AtomicLong added = new AtomicLong();
+
+        @Override
+        public void add(String collection, Event event) throws IOException {
+            added.incrementAndGet();
+        }
+
+        @Override
+        public Iterable<Event> read(String collection) throws IOException {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public Map<String, Iterable<Event>> readAll() throws IOException {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public void acknowledge(String collection, Event event) throws IOException {
+        }
+
+        @Override
+        public void acknowledge(String collection, Iterable<Event> events) throws IOException {
+        }
+
+        @Override
+        public Map<String, Iterable<Event>> lease(int maxEvents, long leaseMillis) throws IOException {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public void release(String collection, Iterable<Event> events) throws IOException {
+        }
+    }
+}
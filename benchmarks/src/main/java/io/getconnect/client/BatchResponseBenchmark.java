@@ -0,0 +1,71 @@
+package io.getconnect.client;
+
+import com.squareup.okhttp.Protocol;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+import com.squareup.okhttp.ResponseBody;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.getconnect.client.exceptions.InvalidEventException;
+
+/**
+ * Reading the response to a batch push, in which every event but one in a thousand succeeded.
+ * Run with the gc profiler (the default for the jmh task) to see the allocation per response.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BatchResponseBenchmark {
+    @Param({ "1000", "50000" })
+    public int events;
+
+    private Map<String, Iterable<Event>> batch;
+    private byte[] responseBody;
+    private Request request;
+
+    @Setup
+    public void setUp() throws InvalidEventException {
+        List<Event> batchEvents = new ArrayList<Event>();
+        StringBuilder response = new StringBuilder("{\"test\":[");
+        for (int i = 0; i < events; i++) {
+            batchEvents.add(BenchmarkEvents.createEvent(1));
+            response.append(i == 0 ? "" : ",");
+            response.append(i % 1000 == 999 ? "{\"success\":false,\"message\":\"Invalid property\"}" : "{\"success\":true}");
+        }
+        batch = Collections.<String, Iterable<Event>>singletonMap("test", batchEvents);
+        responseBody = response.append("]}").toString().getBytes();
+        request = new Request.Builder().url("http://localhost/events").build();
+    }
+
+    @Benchmark
+    public Map<String, Iterable<EventPushResponse>> buildResponseForBatch() throws IOException {
+        Response response = new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(200)
+                .body(ResponseBody.create(ConnectAPI.JSON, responseBody))
+                .build();
+        return ConnectAPI.buildResponseForBatch(batch, response);
+    }
+}
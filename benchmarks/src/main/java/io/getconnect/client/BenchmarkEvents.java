@@ -0,0 +1,109 @@
+package io.getconnect.client;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import io.getconnect.client.exceptions.InvalidEventException;
+
+/**
+ * Events shaped like typical analytics events, shared by the benchmarks.
+ * Properties cycle through strings, integers, decimals and booleans.
+ */
+public final class BenchmarkEvents {
+    private BenchmarkEvents() {
+    }
+
+    /**
+     * Get the names of the properties of a benchmark event.
+     * @param properties The number of properties.
+     * @return The property names.
+     */
+    public static String[] createPropertyNames(int properties) {
+        String[] names = new String[properties];
+        for (int i = 0; i < properties; i++) {
+            names[i] = "property" + i;
+        }
+        return names;
+    }
+
+    /**
+     * Create the properties of a benchmark event. Each call returns a new map, since events take ownership of their map.
+     * @param properties The number of properties.
+     * @return The event properties.
+     */
+    public static Map<String, Object> createEventData(int properties) {
+        String[] names = createPropertyNames(properties);
+        Map<String, Object> eventData = new HashMap<String, Object>();
+        for (int i = 0; i < properties; i++) {
+            switch (i % 4) {
+                case 0:
+                    eventData.put(names[i], "value " + i);
+                    break;
+                case 1:
+                    eventData.put(names[i], (long) i * 1000);
+                    break;
+                case 2:
+                    eventData.put(names[i], i * 1.25);
+                    break;
+                default:
+                    eventData.put(names[i], i % 8 == 3);
+                    break;
+            }
+        }
+        eventData.put("timestamp", new Date());
+        return eventData;
+    }
+
+    /**
+     * Write the same properties as {@link #createEventData(int)} into an event builder.
+     * @param builder The builder to write to.
+     * @param names The property names from {@link #createPropertyNames(int)}.
+     * @param values The string values, one for each property.
+     * @return The builder.
+     */
+    public static EventBuilder putEventData(EventBuilder builder, String[] names, String[] values) {
+        for (int i = 0; i < names.length; i++) {
+            switch (i % 4) {
+                case 0:
+                    builder.putString(names[i], values[i]);
+                    break;
+                case 1:
+                    builder.putLong(names[i], (long) i * 1000);
+                    break;
+                case 2:
+                    builder.putDouble(names[i], i * 1.25);
+                    break;
+                default:
+                    builder.putBoolean(names[i], i % 8 == 3);
+                    break;
+            }
+        }
+        return builder;
+    }
+
+    /**
+     * Get the string values used by {@link #putEventData(EventBuilder, String[], String[])}.
+     * @param properties The number of properties.
+     * @return The string values.
+     */
+    public static String[] createStringValues(int properties) {
+        String[] values = new String[properties];
+        for (int i = 0; i < properties; i++) {
+            values[i] = "value " + i;
+        }
+        return values;
+    }
+
+    /**
+     * Create a benchmark event that has already been serialized, as events are once added to a client.
+     * @param properties The number of properties.
+     * @return The event.
+     * @throws InvalidEventException Never, the properties are valid.
+     */
+    public static Event createEvent(int properties) throws InvalidEventException {
+        Event event = new Event(createEventData(properties));
+        event.getEventJSONBytes();
+        return event;
+    }
+}
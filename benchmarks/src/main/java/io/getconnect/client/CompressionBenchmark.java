@@ -0,0 +1,79 @@
+package io.getconnect.client;
+
+import com.squareup.okhttp.RequestBody;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.getconnect.client.exceptions.InvalidEventException;
+import okio.Buffer;
+
+/**
+ * The CPU cost of writing a batch request body with and without gzip.
+ * The size of each body is printed when the benchmark starts; {@link PushPendingBenchmark} measures
+ * the bytes sent to a server.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CompressionBenchmark {
+    @Param({ "100", "1000" })
+    public int events;
+
+    private RequestBody body;
+    private RequestBody gzipBody;
+    private final Buffer sink = new Buffer();
+
+    @Setup
+    public void setUp() throws InvalidEventException, IOException {
+        List<Event> batchEvents = new ArrayList<Event>();
+        for (int i = 0; i < events; i++) {
+            batchEvents.add(BenchmarkEvents.createEvent(10));
+        }
+        Map<String, Iterable<Event>> batch = Collections.<String, Iterable<Event>>singletonMap("test", batchEvents);
+        body = new EventBatchRequestBody(ConnectAPI.JSON, batch);
+        gzipBody = new GzipRequestBody(body);
+
+        long plainBytes = write(body);
+        long gzipBytes = write(gzipBody);
+        System.out.println();
+        System.out.println(events + " events: " + plainBytes + " bytes, " + gzipBytes + " bytes gzipped (" +
+                (gzipBytes * 100 / plainBytes) + "%)");
+    }
+
+    @Benchmark
+    public long writePlain() throws IOException {
+        return write(body);
+    }
+
+    @Benchmark
+    public long writeGzip() throws IOException {
+        return write(gzipBody);
+    }
+
+    private long write(RequestBody requestBody) throws IOException {
+        requestBody.writeTo(sink);
+        long size = sink.size();
+        sink.clear();
+        return size;
+    }
+}
@@ -0,0 +1,112 @@
+package io.getconnect.client;
+
+import com.google.gson.Gson;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formatting and parsing dates with {@link UTCDateFormat} compared with the single synchronized
+ * {@link SimpleDateFormat} that {@link GsonUTCDateAdapter} used to share between threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DateFormatBenchmark {
+    private static final Gson gson = GsonUTCDateAdapter.createSerializer();
+
+    private final DateFormat synchronizedFormat;
+    private final Date date = new Date(1435723677123L);
+    private final String formatted = UTCDateFormat.format(date);
+    private final String json = gson.toJson(date);
+
+    public DateFormatBenchmark() {
+        synchronizedFormat = new SimpleDateFormat(UTCDateFormat.PATTERN, Locale.US);
+        synchronizedFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String formatUTC1Thread() {
+        return UTCDateFormat.format(date);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String formatUTC4Threads() {
+        return UTCDateFormat.format(date);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public String formatUTC16Threads() {
+        return UTCDateFormat.format(date);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String formatSynchronized1Thread() {
+        return formatSynchronized();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String formatSynchronized4Threads() {
+        return formatSynchronized();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public String formatSynchronized16Threads() {
+        return formatSynchronized();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Date parseUTC4Threads() throws ParseException {
+        return UTCDateFormat.parse(formatted);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Date parseSynchronized4Threads() throws ParseException {
+        synchronized (synchronizedFormat) {
+            return synchronizedFormat.parse(formatted);
+        }
+    }
+
+    @Benchmark
+    public String serializeWithGson() {
+        return gson.toJson(date);
+    }
+
+    @Benchmark
+    public Date deserializeWithGson() {
+        return gson.fromJson(json, Date.class);
+    }
+
+    private String formatSynchronized() {
+        synchronized (synchronizedFormat) {
+            return synchronizedFormat.format(date);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package io.getconnect.client;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.getconnect.client.exceptions.InvalidEventException;
+
+/**
+ * Creating, validating and serializing events, and writing them into a batch.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EventBenchmark {
+    private static final int BATCH_EVENTS = 100;
+
+    @Param({ "10", "50" })
+    public int properties;
+
+    private Map<String, Object> eventData;
+    private Event event;
+    private EventBuilder builder;
+    private String[] names;
+    private String[] values;
+    private Map<String, Iterable<Event>> batch;
+
+    @Setup
+    public void setUp() throws InvalidEventException {
+        eventData = BenchmarkEvents.createEventData(properties);
+        event = new Event(new HashMap<String, Object>(eventData));
+        builder = new EventBuilder();
+        names = BenchmarkEvents.createPropertyNames(properties);
+        values = BenchmarkEvents.createStringValues(properties);
+
+        List<Event> events = new ArrayList<Event>();
+        for (int i = 0; i < BATCH_EVENTS; i++) {
+            events.add(BenchmarkEvents.createEvent(properties));
+        }
+        batch = Collections.<String, Iterable<Event>>singletonMap("test", events);
+    }
+
+    /**
+     * An event created from a map and serialized, as {@link ConnectClient#add(String, Map)} does.
+     * The map is copied first because the event adds its ID to it.
+     */
+    @Benchmark
+    public byte[] createFromMap() throws InvalidEventException {
+        return new Event(new HashMap<String, Object>(eventData)).getEventJSONBytes();
+    }
+
+    @Benchmark
+    public byte[] createWithBuilder() throws InvalidEventException {
+        return BenchmarkEvents.putEventData(builder, names, values).build().getEventJSONBytes();
+    }
+
+    @Benchmark
+    public Event validate() throws InvalidEventException {
+        event.validateProperties();
+        return event;
+    }
+
+    @Benchmark
+    public String getJSONForEventBatch() {
+        return Event.getJSONForEventBatch(batch);
+    }
+}
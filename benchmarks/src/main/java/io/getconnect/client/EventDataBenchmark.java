@@ -0,0 +1,69 @@
+package io.getconnect.client;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading and writing event properties with {@link EventDataAdapter} compared with Gson serializing them as a map.
+ * Run with the gc profiler to compare gc.alloc.rate.norm, the bytes allocated for each operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EventDataBenchmark {
+    private static final Gson gson = GsonUTCDateAdapter.createSerializer();
+    private static final Type eventDataType = new TypeToken<Map<String, Object>>(){}.getType();
+
+    @Param({ "10", "50" })
+    public int properties;
+
+    private EventDataAdapter adapter;
+    private Map<String, Object> eventData;
+    private String json;
+
+    @Setup
+    public void setUp() {
+        adapter = new EventDataAdapter(gson);
+        eventData = BenchmarkEvents.createEventData(properties);
+        json = adapter.serialize(eventData);
+    }
+
+    @Benchmark
+    public String serializeWithAdapter() {
+        return adapter.serialize(eventData);
+    }
+
+    @Benchmark
+    public String serializeWithGson() {
+        return gson.toJson(eventData, eventDataType);
+    }
+
+    @Benchmark
+    public Map<String, Object> deserializeWithAdapter() {
+        return adapter.deserialize(json);
+    }
+
+    @Benchmark
+    public Map<String, Object> deserializeWithGson() {
+        return gson.fromJson(json, eventDataType);
+    }
+}
@@ -0,0 +1,98 @@
+package io.getconnect.client;
+
+import com.squareup.okhttp.mockwebserver.Dispatcher;
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import com.squareup.okhttp.mockwebserver.MockWebServer;
+import com.squareup.okhttp.mockwebserver.RecordedRequest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.getconnect.client.exceptions.ConnectException;
+import io.getconnect.client.store.MemoryEventStore;
+
+/**
+ * Adding events to a client and pushing them with {@link ConnectClient#pushPending()} to a local server,
+ * with and without compression. The average size of the requests is printed at the end of each trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PushPendingBenchmark {
+    @Param({ "100", "1000" })
+    public int events;
+
+    @Param({ "false", "true" })
+    public boolean compression;
+
+    private MockWebServer server;
+    private ConnectClient client;
+    private EventBuilder builder;
+    private String[] names;
+    private String[] values;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong requestBytes = new AtomicLong();
+
+    @Setup
+    public void setUp() throws IOException {
+        StringBuilder response = new StringBuilder("{\"test\":[");
+        for (int i = 0; i < events; i++) {
+            response.append(i == 0 ? "" : ",").append("{\"success\":true}");
+        }
+        final String responseBody = response.append("]}").toString();
+
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                requests.incrementAndGet();
+                requestBytes.addAndGet(request.getBodySize());
+                return new MockResponse().setBody(responseBody);
+            }
+        });
+        server.start();
+
+        ConnectAPI connectAPI = new ConnectAPI("project", "key", server.url("").toString());
+        connectAPI.setCompressionEnabled(compression);
+        client = new ConnectClient(connectAPI, new MemoryEventStore());
+
+        builder = new EventBuilder();
+        names = BenchmarkEvents.createPropertyNames(10);
+        values = BenchmarkEvents.createStringValues(10);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        server.shutdown();
+        if (requests.get() > 0) {
+            System.out.println();
+            System.out.println("Average request: " + requestBytes.get() / requests.get() + " bytes for " + events + " events");
+        }
+    }
+
+    @Benchmark
+    public Map<String, Iterable<EventPushResponse>> addAndPushPending() throws ConnectException {
+        for (int i = 0; i < events; i++) {
+            client.add("test", BenchmarkEvents.putEventData(builder, names, values));
+        }
+        return client.pushPending();
+    }
+}
@@ -0,0 +1,55 @@
+package io.getconnect.client.java;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encrypting and decrypting filtered keys.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FilteredKeyBenchmark {
+    private static final String MASTER_KEY = "80ce00d60d6443118017340c42d1cfaf";
+
+    private Map<String, Object> keyDefinition;
+    private String filteredKey;
+
+    @Setup
+    public void setUp() throws FilteredKeyException {
+        HashMap<String, Object> filters = new HashMap<String, Object>();
+        filters.put("type", "cycling");
+
+        keyDefinition = new HashMap<String, Object>();
+        keyDefinition.put("filters", filters);
+        keyDefinition.put("canQuery", true);
+        keyDefinition.put("canPush", false);
+
+        filteredKey = FilteredKey.encrypt(keyDefinition, MASTER_KEY);
+    }
+
+    @Benchmark
+    public String encrypt() throws FilteredKeyException {
+        return FilteredKey.encrypt(keyDefinition, MASTER_KEY);
+    }
+
+    @Benchmark
+    public Map<String, Object> decrypt() throws FilteredKeyException {
+        return FilteredKey.decrypt(filteredKey, MASTER_KEY);
+    }
+}
@@ -0,0 +1,149 @@
+package io.getconnect.client.store;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.getconnect.client.BenchmarkEvents;
+import io.getconnect.client.Event;
+import io.getconnect.client.exceptions.InvalidEventException;
+
+/**
+ * Adding, reading and acknowledging events in each event store while other events are pending,
+ * for example while the Connect API is unreachable.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class EventStoreBenchmark {
+    private static final int BATCH_EVENTS = 100;
+
+    @Param({ "memory", "file", "segmented", "mapped" })
+    public String store;
+
+    @Param({ "1000", "100000" })
+    public int pending;
+
+    private File root;
+    private EventStore eventStore;
+    private Event event;
+    private List<Event> batch;
+
+    @Setup
+    public void setUp() throws IOException, InvalidEventException {
+        root = File.createTempFile("connect-benchmark", "");
+        if (!root.delete() || !root.mkdir()) {
+            throw new IOException("Could not create the directory '" + root + "'.");
+        }
+
+        eventStore = createStore();
+        for (int i = 0; i < pending; i++) {
+            eventStore.add("pending", BenchmarkEvents.createEvent(10));
+        }
+
+        event = BenchmarkEvents.createEvent(10);
+        batch = new ArrayList<Event>();
+        for (int i = 0; i < BATCH_EVENTS; i++) {
+            batch.add(BenchmarkEvents.createEvent(10));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (eventStore instanceof Closeable) {
+            ((Closeable) eventStore).close();
+        }
+        delete(root);
+    }
+
+    /**
+     * Adding an event and acknowledging it once pushed, as each event is during normal operation.
+     */
+    @Benchmark
+    public EventStore addAndAcknowledge() throws IOException {
+        eventStore.add("test", event);
+        eventStore.acknowledge("test", event);
+        return eventStore;
+    }
+
+    /**
+     * Adding a batch of events and acknowledging them together, as a push of pending events does.
+     */
+    @Benchmark
+    public EventStore addAndAcknowledgeBatch() throws IOException {
+        for (Event batchEvent : batch) {
+            eventStore.add("test", batchEvent);
+        }
+        eventStore.acknowledge("test", batch);
+        return eventStore;
+    }
+
+    @Benchmark
+    public int readAll() throws IOException {
+        int events = 0;
+        for (Map.Entry<String, Iterable<Event>> collection : eventStore.readAll().entrySet()) {
+            for (Event pendingEvent : collection.getValue()) {
+                events++;
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Leasing a batch of pending events and releasing them, as a push of pending events does with each batch it cannot send.
+     */
+    @Benchmark
+    public int leaseAndRelease() throws IOException {
+        int events = 0;
+        for (Map.Entry<String, Iterable<Event>> collection : eventStore.lease(BATCH_EVENTS, 60000).entrySet()) {
+            for (Event pendingEvent : collection.getValue()) {
+                events++;
+            }
+            eventStore.release(collection.getKey(), collection.getValue());
+        }
+        return events;
+    }
+
+    private EventStore createStore() throws IOException {
+        if (store.equals("memory")) {
+            return new MemoryEventStore();
+        } else if (store.equals("file")) {
+            return new FileEventStore("benchmark", root);
+        } else if (store.equals("segmented")) {
+            return new SegmentedLogEventStore("benchmark", root);
+        } else if (store.equals("mapped")) {
+            return new MappedRingEventStore("benchmark", root, 256 * 1024 * 1024, OverflowPolicy.REJECT);
+        }
+        throw new IllegalArgumentException("Unknown event store '" + store + "'.");
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,227 @@
+package io.getconnect.client;
+
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.getconnect.client.exceptions.ConnectException;
+
+/**
+ * Pushes the pending events of a {@link ConnectClient} on a background thread
+ * whenever one of the thresholds of a {@link FlushPolicy} is crossed.
+ */
+class AutoFlusher {
+    private static final long MIN_TICK_MILLIS = 10;
+    private static final long MAX_TICK_MILLIS = 1000;
+    private static final long MIN_RETRY_MILLIS = 1000;
+    private static final long MAX_RETRY_MILLIS = 60000;
+
+    private final ConnectClient client;
+    private final FlushPolicy policy;
+    private final ConnectBatchCallback callback;
+    private final ScheduledExecutorService executor;
+
+    private final AtomicBoolean flushQueued = new AtomicBoolean(false);
+    private final AtomicInteger pendingEvents = new AtomicInteger();
+    private final AtomicLong pendingBytes = new AtomicLong();
+    private final AtomicLong oldestPendingAt = new AtomicLong();
+    // Until when triggers are ignored after a push that left events pending, as a retry is already scheduled.
+    private final AtomicLong retryAt = new AtomicLong();
+    // Only used by the background thread.
+    private long retryDelay = 0;
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                // thrown by the callback; keep flushing on later triggers.
+            }
+        }
+    };
+
+    private final Runnable retryTask = new Runnable() {
+        @Override
+        public void run() {
+            queueFlush();
+        }
+    };
+
+    AutoFlusher(ConnectClient client, FlushPolicy policy, ConnectBatchCallback callback) {
+        this.client = client;
+        this.policy = policy;
+        this.callback = callback;
+        this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "connect-auto-flush");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Starts the age check and pushes anything left in the event store from a previous run.
+     */
+    void start() {
+        if (policy.getMaxAgeMillis() > 0) {
+            long tick = Math.max(MIN_TICK_MILLIS, Math.min(policy.getMaxAgeMillis() / 2, MAX_TICK_MILLIS));
+            executor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    checkAge();
+                }
+            }, tick, tick, TimeUnit.MILLISECONDS);
+        }
+        requestFlush();
+    }
+
+    /**
+     * Records an event that has been added to the event store and triggers a push if a threshold has been crossed.
+     * @param event The event that was added.
+     */
+    void onEventAdded(Event event) {
+        oldestPendingAt.compareAndSet(0, System.currentTimeMillis());
+        int events = pendingEvents.incrementAndGet();
+        long bytes = policy.getMaxPendingBytes() > 0
+                ? pendingBytes.addAndGet(event.getEventJSONBytes().length)
+                : 0;
+
+        if ((policy.getMaxPendingEvents() > 0 && events >= policy.getMaxPendingEvents()) ||
+                (policy.getMaxPendingBytes() > 0 && bytes >= policy.getMaxPendingBytes())) {
+            requestFlush();
+        }
+    }
+
+    /**
+     * Stops the background thread after pushing any events that are still pending.
+     * @param timeoutMillis Maximum time in milliseconds to wait for the final push to complete.
+     * @return Whether the background thread stopped within the timeout.
+     */
+    boolean shutdown(long timeoutMillis) {
+        try {
+            if (pendingEvents.get() > 0 && flushQueued.compareAndSet(false, true)) {
+                executor.execute(flushTask);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        try {
+            return executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void checkAge() {
+        long oldest = oldestPendingAt.get();
+        if (oldest != 0 && System.currentTimeMillis() - oldest >= policy.getMaxAgeMillis()) {
+            requestFlush();
+        }
+    }
+
+    private void requestFlush() {
+        if (System.currentTimeMillis() < retryAt.get())
+            return;
+        queueFlush();
+    }
+
+    private void queueFlush() {
+        // Only one push is ever queued; triggers that arrive while it is waiting are coalesced into it.
+        if (flushQueued.compareAndSet(false, true)) {
+            try {
+                executor.execute(flushTask);
+            } catch (RejectedExecutionException e) {
+                // shutting down, the final push will pick up the event.
+                flushQueued.set(false);
+            }
+        }
+    }
+
+    private void flush() {
+        flushQueued.set(false);
+        int events = pendingEvents.getAndSet(0);
+        long bytes = pendingBytes.getAndSet(0);
+        oldestPendingAt.set(0);
+
+        Map<String, Iterable<EventPushResponse>> details = null;
+        try {
+            details = client.pushPending();
+        } catch (RuntimeException e) {
+            // The events are still in the store, so retry after a backoff rather than on the next trigger.
+            addPending(events, bytes);
+            scheduleRetry();
+            if (callback != null) {
+                callback.onFailure(e instanceof ConnectException ? (ConnectException) e : new ConnectException(e));
+            }
+            return;
+        }
+
+        if (addPendingAfterPush(details)) {
+            scheduleRetry();
+        } else {
+            retryDelay = 0;
+            retryAt.set(0);
+        }
+        if (callback != null) {
+            callback.onSuccess(details);
+        }
+    }
+
+    /**
+     * Ignores the event thresholds for a while after a push that left events pending, so that while the Connect API
+     * is unavailable every new event does not trigger another push straight away, and schedules the next push
+     * instead. The delay doubles with each push in a row that leaves events pending.
+     */
+    private void scheduleRetry() {
+        retryDelay = retryDelay == 0 ? MIN_RETRY_MILLIS : Math.min(retryDelay * 2, MAX_RETRY_MILLIS);
+        retryAt.set(System.currentTimeMillis() + retryDelay);
+        try {
+            executor.schedule(retryTask, retryDelay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // shutting down, the final push will pick up the events.
+        }
+    }
+
+    /**
+     * Counts the events that stay in the store after a push, such as events in a request that failed,
+     * back into the pending events, so they are pushed again once a threshold is crossed.
+     * @return Whether any events were left pending.
+     */
+    private boolean addPendingAfterPush(Map<String, Iterable<EventPushResponse>> details) {
+        int events = 0;
+        long bytes = 0;
+        for (Iterable<EventPushResponse> collection : details.values()) {
+            EventPushResponses responses = EventPushResponses.of(collection);
+            for (int i = 0; i < responses.size(); i++) {
+                if (client.staysPending(responses, i)) {
+                    events++;
+                    if (policy.getMaxPendingBytes() > 0) {
+                        bytes += responses.getEvent(i).getEventJSONBytes().length;
+                    }
+                }
+            }
+        }
+        if (events == 0)
+            return false;
+
+        addPending(events, bytes);
+        return true;
+    }
+
+    private void addPending(int events, long bytes) {
+        pendingEvents.addAndGet(events);
+        pendingBytes.addAndGet(bytes);
+        oldestPendingAt.compareAndSet(0, System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,199 @@
+package io.getconnect.client;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.getconnect.client.exceptions.ConnectException;
+
+/**
+ * Pushes the chunks of a split batch with a limited number of requests in flight,
+ * then merges the responses of every chunk back into a single response for the whole batch.
+ * Events in a chunk whose request failed are reported as unsuccessful, unless every chunk failed,
+ * in which case the first failure is reported instead. They are always retryable, as the request failed as a whole
+ * and Connect did not reject any of its events in particular, the same as when a batch of a single chunk fails.
+ */
+class ChunkedBatchPush {
+    private final ConnectAPI connectAPI;
+    private final List<Map<String, Iterable<Event>>> chunks;
+    private final ConnectBatchCallback callback;
+
+    private final ChunkResult[] results;
+    private final AtomicInteger nextChunk = new AtomicInteger();
+    private final AtomicInteger remainingChunks;
+
+    ChunkedBatchPush(ConnectAPI connectAPI, List<Map<String, Iterable<Event>>> chunks, ConnectBatchCallback callback) {
+        this.connectAPI = connectAPI;
+        this.chunks = chunks;
+        this.callback = callback;
+        this.results = new ChunkResult[chunks.size()];
+        this.remainingChunks = new AtomicInteger(chunks.size());
+    }
+
+    /**
+     * Start pushing the chunks asynchronously, invoking the callback once every chunk has completed.
+     * @param maxConcurrentRequests Maximum number of chunks to push at the same time.
+     */
+    void start(int maxConcurrentRequests) {
+        int initial = Math.max(1, Math.min(maxConcurrentRequests, chunks.size()));
+        for (int i = 0; i < initial; i++) {
+            pushNextChunk();
+        }
+    }
+
+    /**
+     * Push the chunks synchronously, each with a synchronous request run by the executor.
+     * Every request completes or fails within the timeouts of the HTTP client, so this never waits indefinitely,
+     * and a chunk that fails with any exception is reported like a failed request.
+     * @param executor The {@link Executor} that runs the requests.
+     * @param maxConcurrentRequests Maximum number of chunks to push at the same time.
+     * @return The responses of every chunk, merged.
+     * @throws ConnectException If every chunk failed, or the calling thread was interrupted.
+     */
+    Map<String, Iterable<EventPushResponse>> push(Executor executor, int maxConcurrentRequests) throws ConnectException {
+        CompletionService<Integer> completion = new ExecutorCompletionService<Integer>(executor);
+        int limit = Math.max(1, maxConcurrentRequests);
+        int inFlight = 0;
+        int next = 0;
+        while (next < chunks.size() || inFlight > 0) {
+            while (inFlight < limit && next < chunks.size()) {
+                final int index = next++;
+                completion.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        try {
+                            setResult(index, new ChunkResult(connectAPI.pushBatchRequest(chunks.get(index)), null));
+                        } catch (ConnectException e) {
+                            setResult(index, new ChunkResult(null, e));
+                        } catch (RuntimeException e) {
+                            setResult(index, new ChunkResult(null, new ConnectException(e)));
+                        }
+                        return index;
+                    }
+                });
+                inFlight++;
+            }
+
+            try {
+                completion.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ConnectException(e);
+            }
+            inFlight--;
+        }
+
+        return merge();
+    }
+
+    private void pushNextChunk() {
+        final int index = nextChunk.getAndIncrement();
+        if (index >= chunks.size())
+            return;
+
+        connectAPI.pushBatchRequest(chunks.get(index), new ConnectBatchCallback() {
+            @Override
+            public void onSuccess(Map<String, Iterable<EventPushResponse>> details) {
+                complete(index, new ChunkResult(details, null));
+            }
+
+            @Override
+            public void onFailure(ConnectException e) {
+                complete(index, new ChunkResult(null, e));
+            }
+        });
+    }
+
+    private void complete(int index, ChunkResult result) {
+        setResult(index, result);
+
+        if (remainingChunks.decrementAndGet() == 0) {
+            finish();
+        } else {
+            pushNextChunk();
+        }
+    }
+
+    private void setResult(int index, ChunkResult result) {
+        synchronized (results) {
+            results[index] = result;
+        }
+    }
+
+    private void finish() {
+        if (callback == null)
+            return;
+
+        Map<String, Iterable<EventPushResponse>> merged;
+        try {
+            merged = merge();
+        } catch (ConnectException e) {
+            callback.onFailure(e);
+            return;
+        }
+        callback.onSuccess(merged);
+    }
+
+    /**
+     * Merge the results of every chunk into the responses for the whole batch.
+     * @throws ConnectException The first failure, if every chunk failed.
+     */
+    private Map<String, Iterable<EventPushResponse>> merge() throws ConnectException {
+        Map<String, Iterable<EventPushResponse>> merged = new LinkedHashMap<String, Iterable<EventPushResponse>>();
+        ConnectException firstFailure = null;
+        boolean anySucceeded = false;
+
+        synchronized (results) {
+            for (int i = 0; i < results.length; i++) {
+                ConnectException failure = results[i].failure;
+                if (failure != null) {
+                    if (firstFailure == null) {
+                        firstFailure = failure;
+                    }
+                    for (Map.Entry<String, Iterable<Event>> collection : chunks.get(i).entrySet()) {
+                        EventPushResponses responses = getResponses(merged, collection.getKey());
+                        for (Event event : collection.getValue()) {
+                            responses.add(event, false, failure.getMessage(), true);
+                        }
+                    }
+                } else {
+                    anySucceeded = true;
+                    for (Map.Entry<String, Iterable<EventPushResponse>> collection : results[i].details.entrySet()) {
+                        getResponses(merged, collection.getKey()).addAll(collection.getValue());
+                    }
+                }
+            }
+        }
+
+        if (!anySucceeded)
+            throw firstFailure;
+        return merged;
+    }
+
+    private static EventPushResponses getResponses(Map<String, Iterable<EventPushResponse>> merged, String collection) {
+        EventPushResponses responses = (EventPushResponses) merged.get(collection);
+        if (responses == null) {
+            responses = new EventPushResponses();
+            merged.put(collection, responses);
+        }
+        return responses;
+    }
+
+    /**
+     * The responses to a chunk, or the failure of its request.
+     */
+    private static class ChunkResult {
+        final Map<String, Iterable<EventPushResponse>> details;
+        final ConnectException failure;
+
+        ChunkResult(Map<String, Iterable<EventPushResponse>> details, ConnectException failure) {
+            this.details = details;
+            this.failure = failure;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package io.getconnect.client;
+
+/**
+ * Stops pushes from being sent while the Connect API is unhealthy.
+ * The circuit opens after a number of consecutive network or server (5xx) failures, and
+ * requests fail immediately while it is open. Once the open period has elapsed, a single
+ * trial request is let through: the circuit closes if it succeeds and opens again if it fails.
+ */
+public class CircuitBreaker {
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private int consecutiveFailures = 0;
+    private long openUntil = 0;
+    private boolean trialInFlight = false;
+
+    /**
+     * Creates a new circuit breaker.
+     * @param failureThreshold Number of consecutive failures that opens the circuit.
+     * @param openMillis Time in milliseconds the circuit stays open before a trial request is let through.
+     */
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * Whether a request may be sent.
+     * @return Whether a request may be sent.
+     */
+    public synchronized boolean allowRequest() {
+        if (consecutiveFailures < failureThreshold)
+            return true;
+
+        if (trialInFlight || System.currentTimeMillis() < openUntil)
+            return false;
+
+        trialInFlight = true;
+        return true;
+    }
+
+    /**
+     * Whether the circuit is open, i.e. requests are currently being rejected.
+     * @return Whether the circuit is open.
+     */
+    public synchronized boolean isOpen() {
+        return consecutiveFailures >= failureThreshold;
+    }
+
+    /**
+     * Record that the Connect API responded to a request (other than with a server error).
+     */
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    /**
+     * Record that a request failed with a network or server error.
+     */
+    public synchronized void recordFailure() {
+        trialInFlight = false;
+        consecutiveFailures++;
+        if (consecutiveFailures >= failureThreshold) {
+            openUntil = System.currentTimeMillis() + openMillis;
+        }
+    }
+}
@@ -1,7 +1,8 @@
 package io.getconnect.client;
 
 import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.squareup.okhttp.Callback;
 import com.squareup.okhttp.MediaType;
 import com.squareup.okhttp.OkHttpClient;
@@ -10,14 +11,30 @@ import com.squareup.okhttp.RequestBody;
 import com.squareup.okhttp.Response;
 
 import java.io.IOException;
-import java.lang.reflect.Type;
+import java.io.InterruptedIOException;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import io.getconnect.client.exceptions.CircuitOpenException;
 import io.getconnect.client.exceptions.ConnectException;
 import io.getconnect.client.exceptions.InvalidEventException;
 import io.getconnect.client.exceptions.ServerException;
+import io.getconnect.client.metrics.MetricsRegistry;
 
 /**
  * API Client for pushing events to Connect API.
@@ -26,12 +43,27 @@ import io.getconnect.client.exceptions.ServerException;
 public class ConnectAPI {
     protected static final String API_BASE_URL = "https://api.getconnect.io";
     protected static final Gson gson = GsonUTCDateAdapter.createSerializer();
+    private static final EventDataAdapter responseAdapter = new EventDataAdapter(gson);
     protected static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+    protected static final int DEFAULT_COMPRESSION_THRESHOLD = 1024;
+    protected static final int DEFAULT_MAX_BATCH_EVENTS = 1000;
+    protected static final int DEFAULT_MAX_CONCURRENT_BATCHES = 4;
 
     protected final String projectId;
     protected final String apiKey;
     protected final String eventsUrl;
-    protected final OkHttpClient client = new OkHttpClient();
+    protected final OkHttpClient client;
+    protected volatile boolean compressionEnabled = false;
+    protected volatile int compressionThreshold = DEFAULT_COMPRESSION_THRESHOLD;
+    protected volatile int maxBatchEvents = DEFAULT_MAX_BATCH_EVENTS;
+    protected volatile long maxBatchBytes = 0;
+    protected volatile int maxConcurrentBatches = DEFAULT_MAX_CONCURRENT_BATCHES;
+    protected volatile RetryPolicy retryPolicy = RetryPolicy.NONE;
+    protected volatile CircuitBreaker circuitBreaker = null;
+    private volatile Instruments instruments = Instruments.NONE;
+
+    private static ScheduledExecutorService retryScheduler;
+    private static ExecutorService batchExecutor;
 
     /**
      * Creates a new Connect API client.
@@ -49,10 +81,97 @@ public class ConnectAPI {
      * @param baseUrl       Base URL of the Connect API.
      */
     public ConnectAPI(String projectId, String apiKey, String baseUrl) {
+        this(projectId, apiKey, baseUrl, null);
+    }
+
+    /**
+     * Creates a new Connect API client.
+     * @param projectId     ID of the project to which to push events.
+     * @param apiKey        API key used to access the project (this must be a push or push/query key).
+     * @param baseUrl       Base URL of the Connect API.
+     * @param transport     The {@link ConnectTransport} used to send requests, or null for the shared default transport.
+     */
+    public ConnectAPI(String projectId, String apiKey, String baseUrl, ConnectTransport transport) {
         this.projectId = projectId;
         this.apiKey = apiKey;
         String base = baseUrl == null ? API_BASE_URL : baseUrl;
         this.eventsUrl = base + "/events/";
+        this.client = (transport == null ? ConnectTransport.getDefault() : transport).getHttpClient();
+    }
+
+    /**
+     * Sets whether requests are gzip compressed.
+     * When enabled, batches are always compressed and single events are compressed once their JSON
+     * reaches the compression threshold.
+     * @param compressionEnabled Whether requests are gzip compressed.
+     */
+    public void setCompressionEnabled(boolean compressionEnabled) {
+        this.compressionEnabled = compressionEnabled;
+    }
+
+    /**
+     * Sets the size of the JSON for a single event from which the request is compressed, if compression is enabled.
+     * @param compressionThreshold The size in bytes of the event JSON from which the request is compressed.
+     */
+    public void setCompressionThreshold(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    /**
+     * Sets the maximum number of events sent in a single request. Larger batches are split into multiple requests.
+     * @param maxBatchEvents The maximum number of events in a request, or 0 for no limit.
+     */
+    public void setMaxBatchEvents(int maxBatchEvents) {
+        this.maxBatchEvents = maxBatchEvents;
+    }
+
+    /**
+     * Sets the maximum size of the event JSON sent in a single request. Larger batches are split into multiple requests.
+     * A single event larger than the limit is still sent, in a request of its own.
+     * @param maxBatchBytes The maximum size in bytes of the events in a request, or 0 for no limit.
+     */
+    public void setMaxBatchBytes(long maxBatchBytes) {
+        this.maxBatchBytes = maxBatchBytes;
+    }
+
+    /**
+     * Sets the maximum number of requests sent at the same time when a batch is split into multiple requests.
+     * @param maxConcurrentBatches The maximum number of requests in flight for a single batch.
+     */
+    public void setMaxConcurrentBatches(int maxConcurrentBatches) {
+        this.maxConcurrentBatches = maxConcurrentBatches;
+    }
+
+    /**
+     * Sets the policy for retrying pushes that fail with a network or server (5xx) error.
+     * By default pushes are not retried.
+     * @param retryPolicy The {@link RetryPolicy} for failed pushes.
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy == null ? RetryPolicy.NONE : retryPolicy;
+    }
+
+    /**
+     * Sets the circuit breaker that stops pushes being sent while the Connect API is unhealthy.
+     * Pushes fail with a {@link CircuitOpenException} while the circuit is open, so queued events stay in the event store.
+     * By default there is no circuit breaker.
+     * @param circuitBreaker The {@link CircuitBreaker} to use, or null for none.
+     */
+    public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Sets the registry of the metrics recorded for requests and batch pushes. See
+     * {@link io.getconnect.client.metrics.MetricNames} for the metrics. By default no metrics are recorded.
+     * @param metrics The {@link MetricsRegistry} to record to, or null for none.
+     */
+    public void setMetrics(MetricsRegistry metrics) {
+        this.instruments = Instruments.create(metrics);
+    }
+
+    void setInstruments(Instruments instruments) {
+        this.instruments = instruments;
     }
 
     /**
@@ -65,12 +184,12 @@ public class ConnectAPI {
      */
     public void pushEvent(String collection, Event event) throws ConnectException {
         String url = this.eventsUrl + collection;
-        String eventJSON = event.getEventJSON();
+        byte[] eventJSON = event.getEventJSONBytes();
         Request request = this.generatePostRequest(url, eventJSON);
 
         Response response = null;
         try {
-            response = client.newCall(request).execute();
+            response = this.execute(request);
         } catch (IOException e) {
             throw new ConnectException(e);
         }
@@ -88,10 +207,17 @@ public class ConnectAPI {
      */
     public void pushEvent(String collection, Event event, final ConnectCallback callback) {
         String url = this.eventsUrl + collection;
-        String eventJSON = event.getEventJSON();
+        byte[] eventJSON = event.getEventJSONBytes();
         Request request = this.generatePostRequest(url, eventJSON);
 
-        client.newCall(request).enqueue(new Callback() {
+        if (!this.allowRequest()) {
+            if (callback != null) {
+                callback.onFailure(ConnectAPI.getCircuitOpenException());
+            }
+            return;
+        }
+
+        this.enqueue(request, new Callback() {
             @Override public void onFailure(Request request, IOException e) {
                 if (callback != null) {
                     callback.onFailure(new ConnectException(e));
@@ -112,23 +238,107 @@ public class ConnectAPI {
 
     /**
      * Pushes a batch of events to the Connect API synchronously.
+     * Batches larger than the batch limits are split into multiple requests, which are sent concurrently
+     * as synchronous requests on a shared pool of threads, so each completes within the HTTP client's timeouts.
+     * The events of a request that fails are reported as unsuccessful, unless all of the requests fail.
      * @param batch     The event batch as a Map keyed by collection name containing a collection of @{link Event}s.
      * @throws ConnectException When an error occurs.
      *         Will be {@link InvalidEventException}, {@Link ServerException}
      *         or a generic {@link ConnectException} with an inner exception.
      */
     public Map<String, Iterable<EventPushResponse>> pushEventBatch(final Map<String, Iterable<Event>> batch) throws ConnectException {
-        String batchJSON = Event.getJSONForEventBatch(batch);
-        Request request = this.generatePostRequest(this.eventsUrl, batchJSON);
+        List<Map<String, Iterable<Event>>> chunks = this.splitBatch(batch);
+        if (chunks.size() == 1) {
+            return this.pushBatchRequest(chunks.get(0));
+        }
+
+        return new ChunkedBatchPush(this, chunks, null).push(ConnectAPI.getBatchExecutor(), maxConcurrentBatches);
+    }
+
+    /**
+     * Pushes a batch of events to the Connect API asynchronously.
+     * Batches larger than the batch limits are split into multiple requests, which are sent concurrently.
+     * The events of a request that fails are reported as unsuccessful, unless all of the requests fail.
+     * @param batch         The event batch as a Map keyed by collection name containing a collection of @{link Event}s.
+     * @param callback      A {@link ConnectBatchCallback} that will be invoked with the results of the request
+     */
+    public void pushEventBatch(final Map<String, Iterable<Event>> batch, final ConnectBatchCallback callback) {
+        List<Map<String, Iterable<Event>>> chunks = this.splitBatch(batch);
+        if (chunks.size() == 1) {
+            this.pushBatchRequest(chunks.get(0), callback);
+            return;
+        }
+
+        new ChunkedBatchPush(this, chunks, callback).start(maxConcurrentBatches);
+    }
+
+    /**
+     * Split a batch into chunks that are within the batch limits, keeping the events in order.
+     * @param batch The event batch as a Map keyed by collection name containing a collection of @{link Event}s.
+     * @return The chunks of the batch. There is always at least one chunk.
+     */
+    protected List<Map<String, Iterable<Event>>> splitBatch(final Map<String, Iterable<Event>> batch) {
+        int eventLimit = maxBatchEvents;
+        long byteLimit = maxBatchBytes;
+        List<Map<String, Iterable<Event>>> chunks = new ArrayList<Map<String, Iterable<Event>>>();
+        Map<String, Iterable<Event>> chunk = new LinkedHashMap<String, Iterable<Event>>();
+        int chunkEvents = 0;
+        long chunkBytes = 0;
+
+        for (Map.Entry<String, Iterable<Event>> collection : batch.entrySet()) {
+            ArrayList<Event> collectionEvents = null;
+            for (Event event : collection.getValue()) {
+                long eventBytes = byteLimit > 0 ? event.getEventJSONBytes().length : 0;
+                if (chunkEvents > 0 && ((eventLimit > 0 && chunkEvents >= eventLimit) ||
+                        (byteLimit > 0 && chunkBytes + eventBytes > byteLimit))) {
+                    chunks.add(chunk);
+                    chunk = new LinkedHashMap<String, Iterable<Event>>();
+                    collectionEvents = null;
+                    chunkEvents = 0;
+                    chunkBytes = 0;
+                }
+                if (collectionEvents == null) {
+                    collectionEvents = new ArrayList<Event>();
+                    chunk.put(collection.getKey(), collectionEvents);
+                }
+                collectionEvents.add(event);
+                chunkEvents++;
+                chunkBytes += eventBytes;
+            }
+        }
+
+        if (chunkEvents > 0 || chunks.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    /**
+     * Pushes a batch of events to the Connect API synchronously in a single request.
+     * @param batch     The event batch as a Map keyed by collection name containing a collection of @{link Event}s.
+     * @throws ConnectException When an error occurs.
+     *         Will be {@link InvalidEventException}, {@Link ServerException}
+     *         or a generic {@link ConnectException} with an inner exception.
+     */
+    protected Map<String, Iterable<EventPushResponse>> pushBatchRequest(final Map<String, Iterable<Event>> batch) throws ConnectException {
+        Request request = this.generatePostRequest(this.eventsUrl, new EventBatchRequestBody(JSON, batch), compressionEnabled);
+        final Instruments metrics = this.instruments;
+        final int events = ConnectAPI.countEvents(batch);
+        metrics.batchEvents.record(events);
 
         Response response = null;
         try {
-            response = client.newCall(request).execute();
+            response = this.execute(request);
         } catch (IOException e) {
+            metrics.eventsFailed.increment(events);
             throw new ConnectException(e);
+        } catch (CircuitOpenException e) {
+            metrics.eventsFailed.increment(events);
+            throw e;
         }
 
         if (!response.isSuccessful()) {
+            metrics.eventsFailed.increment(events);
             throw ConnectAPI.getExceptionForBatchResponse(response);
         }
 
@@ -136,55 +346,328 @@ public class ConnectAPI {
         try {
             batchResponse = ConnectAPI.buildResponseForBatch(batch, response);
         } catch (IOException e) {
+            metrics.eventsFailed.increment(events);
             throw new ConnectException(e);
         }
 
+        ConnectAPI.recordBatchResponse(metrics, batchResponse);
         return batchResponse;
     }
 
     /**
-     * Pushes a batch of events to the Connect API asynchronously.
+     * Pushes a batch of events to the Connect API asynchronously in a single request.
      * @param batch         The event batch as a Map keyed by collection name containing a collection of @{link Event}s.
      * @param callback      A {@link ConnectBatchCallback} that will be invoked with the results of the request
      */
-    public void pushEventBatch(final Map<String, Iterable<Event>> batch, final ConnectBatchCallback callback) {
-        String batchJSON = Event.getJSONForEventBatch(batch);
-
-        Request request = this.generatePostRequest(this.eventsUrl, batchJSON);
+    protected void pushBatchRequest(final Map<String, Iterable<Event>> batch, final ConnectBatchCallback callback) {
+        Request request = this.generatePostRequest(this.eventsUrl, new EventBatchRequestBody(JSON, batch), compressionEnabled);
+        final Instruments metrics = this.instruments;
+        final int events = ConnectAPI.countEvents(batch);
+        metrics.batchEvents.record(events);
+
+        if (!this.allowRequest()) {
+            metrics.eventsFailed.increment(events);
+            if (callback != null) {
+                callback.onFailure(ConnectAPI.getCircuitOpenException());
+            }
+            return;
+        }
 
-        client.newCall(request).enqueue(new Callback() {
+        this.enqueue(request, new Callback() {
             @Override public void onFailure(Request request, IOException e) {
+                metrics.eventsFailed.increment(events);
                 if (callback != null) {
                     callback.onFailure(new ConnectException(e));
                 }
             }
             @Override public void onResponse(Response response) {
-                if (callback != null) {
-                    if (response.isSuccessful()) {
-                        Map<String, Iterable<EventPushResponse>> batchResponse = null;
-                        try {
-                            batchResponse = ConnectAPI.buildResponseForBatch(batch, response);
-                        } catch (IOException e) {
-                            callback.onFailure(new ConnectException(e));
-                        }
-                        callback.onSuccess(batchResponse);
-                    } else {
-                        ConnectException exception = ConnectAPI.getExceptionForBatchResponse(response);
-                        callback.onFailure(exception);
+                if (!response.isSuccessful()) {
+                    metrics.eventsFailed.increment(events);
+                    if (callback != null) {
+                        callback.onFailure(ConnectAPI.getExceptionForBatchResponse(response));
                     }
+                    return;
+                }
+
+                Map<String, Iterable<EventPushResponse>> batchResponse = null;
+                try {
+                    batchResponse = ConnectAPI.buildResponseForBatch(batch, response);
+                } catch (IOException e) {
+                    metrics.eventsFailed.increment(events);
+                    if (callback != null) {
+                        callback.onFailure(new ConnectException(e));
+                    }
+                    return;
+                }
+                ConnectAPI.recordBatchResponse(metrics, batchResponse);
+                if (callback != null) {
+                    callback.onSuccess(batchResponse);
                 }
             }
         });
     }
 
+    /**
+     * Count the events in a batch.
+     * @param batch The event batch as a Map keyed by collection name containing a collection of @{link Event}s.
+     * @return The number of events.
+     */
+    static int countEvents(Map<String, Iterable<Event>> batch) {
+        int events = 0;
+        for (Iterable<Event> collection : batch.values()) {
+            if (collection instanceof Collection) {
+                events += ((Collection<Event>) collection).size();
+            } else {
+                for (Event event : collection) {
+                    events++;
+                }
+            }
+        }
+        return events;
+    }
+
+    private static void recordBatchResponse(Instruments metrics, Map<String, Iterable<EventPushResponse>> batchResponse) {
+        long pushed = 0;
+        long failed = 0;
+        for (Iterable<EventPushResponse> collection : batchResponse.values()) {
+            EventPushResponses responses = EventPushResponses.of(collection);
+            pushed += responses.getSuccessCount();
+            failed += responses.size() - responses.getSuccessCount();
+        }
+        metrics.eventsPushed.increment(pushed);
+        metrics.eventsFailed.increment(failed);
+    }
+
     protected Request generatePostRequest(String url, String json) {
-        return new Request.Builder()
+        boolean compress = compressionEnabled && json.length() >= compressionThreshold;
+        return this.generatePostRequest(url, RequestBody.create(JSON, json), compress);
+    }
+
+    protected Request generatePostRequest(String url, byte[] json) {
+        boolean compress = compressionEnabled && json.length >= compressionThreshold;
+        return this.generatePostRequest(url, RequestBody.create(JSON, json), compress);
+    }
+
+    protected Request generatePostRequest(String url, RequestBody body, boolean compress) {
+        Request.Builder builder = new Request.Builder()
                 .url(url)
                 .addHeader("X-Project-Id", projectId)
                 .addHeader("X-Api-Key", apiKey)
-                .addHeader("Accept", "application/json")
-                .post(RequestBody.create(JSON, json))
-                .build();
+                .addHeader("Accept", "application/json");
+
+        if (compress) {
+            builder.addHeader("Content-Encoding", "gzip");
+            body = new GzipRequestBody(body);
+        }
+
+        return builder.post(body).build();
+    }
+
+    /**
+     * Executes a request, retrying it according to the retry policy.
+     * @param request The request to execute.
+     * @return The response to the final attempt.
+     * @throws IOException If the final attempt fails with a network error.
+     * @throws CircuitOpenException If the circuit breaker is open.
+     */
+    protected Response execute(Request request) throws IOException {
+        if (!this.allowRequest()) {
+            throw ConnectAPI.getCircuitOpenException();
+        }
+
+        RetryPolicy policy = this.retryPolicy;
+        Instruments metrics = this.instruments;
+        for (int retry = 0; ; retry++) {
+            Response response = null;
+            IOException failure = null;
+            long sent = System.nanoTime();
+            try {
+                response = client.newCall(request).execute();
+            } catch (IOException e) {
+                failure = e;
+            }
+            ConnectAPI.recordRequest(metrics, response, sent);
+
+            long delay = -1;
+            if (this.recordResult(response) && retry < policy.getMaxRetries() && this.allowRequest()) {
+                delay = ConnectAPI.getRetryDelay(policy, retry, response);
+            }
+            if (delay < 0) {
+                if (failure != null) {
+                    throw failure;
+                }
+                return response;
+            }
+
+            metrics.requestRetries.increment(1);
+
+            if (response != null) {
+                response.body().close();
+            }
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to retry the request.");
+            }
+        }
+    }
+
+    /**
+     * Enqueues a request, retrying it according to the retry policy.
+     * The callback is invoked once, with the result of the final attempt.
+     * @param request The request to enqueue.
+     * @param callback The callback to invoke with the result of the final attempt.
+     */
+    protected void enqueue(final Request request, final Callback callback) {
+        final RetryPolicy policy = this.retryPolicy;
+        final Instruments metrics = this.instruments;
+        client.newCall(request).enqueue(new Callback() {
+            private int retry = 0;
+            private long sent = System.nanoTime();
+
+            @Override public void onFailure(Request failedRequest, IOException e) {
+                ConnectAPI.recordRequest(metrics, null, sent);
+                if (!retry(null)) {
+                    callback.onFailure(failedRequest, e);
+                }
+            }
+
+            @Override public void onResponse(Response response) throws IOException {
+                ConnectAPI.recordRequest(metrics, response, sent);
+                if (!retry(response)) {
+                    callback.onResponse(response);
+                }
+            }
+
+            private boolean retry(Response response) {
+                if (!ConnectAPI.this.recordResult(response) || retry >= policy.getMaxRetries() || !ConnectAPI.this.allowRequest()) {
+                    return false;
+                }
+
+                long delay = ConnectAPI.getRetryDelay(policy, retry++, response);
+                if (delay < 0) {
+                    return false;
+                }
+                if (response != null) {
+                    try { response.body().close(); } catch (IOException e) { }
+                }
+                metrics.requestRetries.increment(1);
+                final Callback retryCallback = this;
+                ConnectAPI.getRetryScheduler().schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        sent = System.nanoTime();
+                        client.newCall(request).enqueue(retryCallback);
+                    }
+                }, delay, TimeUnit.MILLISECONDS);
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Records the result of a request with the circuit breaker.
+     * @param response The response to the request, or null if it failed with a network error.
+     * @return Whether the request failed in a way that can be retried.
+     */
+    private boolean recordResult(Response response) {
+        boolean retryable = response == null || response.code() >= 500;
+        CircuitBreaker breaker = this.circuitBreaker;
+        if (breaker != null) {
+            if (retryable) {
+                breaker.recordFailure();
+            } else {
+                breaker.recordSuccess();
+            }
+        }
+        return retryable;
+    }
+
+    private static void recordRequest(Instruments metrics, Response response, long sent) {
+        metrics.requests.increment(1);
+        metrics.requestDuration.record(System.nanoTime() - sent);
+        if (response == null) {
+            metrics.requestErrors.increment(1);
+        } else {
+            metrics.recordResponse(response.code());
+        }
+    }
+
+    private boolean allowRequest() {
+        CircuitBreaker breaker = this.circuitBreaker;
+        return breaker == null || breaker.allowRequest();
+    }
+
+    private static CircuitOpenException getCircuitOpenException() {
+        return new CircuitOpenException("The Connect API is unavailable; pushes are paused until it recovers.");
+    }
+
+    /**
+     * Gets the delay before retrying a request, honouring a Retry-After header in the response.
+     * @return The delay in milliseconds, or -1 if the server asked for a longer delay than the retry policy allows,
+     *         in which case the request is not retried.
+     */
+    private static long getRetryDelay(RetryPolicy policy, int retry, Response response) {
+        long delay = policy.getDelayMillis(retry);
+        long requested = ConnectAPI.getRetryAfterMillis(response);
+        if (requested <= delay)
+            return delay;
+
+        return requested > policy.getMaxDelayMillis() ? -1 : requested;
+    }
+
+    private static long getRetryAfterMillis(Response response) {
+        String retryAfter = response == null ? null : response.header("Retry-After");
+        if (retryAfter == null)
+            return 0;
+
+        try {
+            return Long.parseLong(retryAfter.trim()) * 1000;
+        } catch (NumberFormatException e) {
+            // not delta-seconds, try an HTTP date
+        }
+
+        DateFormat httpDate = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        httpDate.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            return httpDate.parse(retryAfter.trim()).getTime() - System.currentTimeMillis();
+        } catch (ParseException e) {
+            return 0;
+        }
+    }
+
+    private static synchronized ScheduledExecutorService getRetryScheduler() {
+        if (retryScheduler == null) {
+            retryScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "connect-retry");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return retryScheduler;
+    }
+
+    /**
+     * Gets the executor that sends the requests of a batch pushed synchronously, each request on its own thread.
+     * The number of threads is bounded by the requests in flight, at most {@link #setMaxConcurrentBatches(int)}
+     * for each batch, and idle threads stop after a minute.
+     */
+    private static synchronized ExecutorService getBatchExecutor() {
+        if (batchExecutor == null) {
+            batchExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "connect-batch");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return batchExecutor;
     }
 
     protected static ConnectException getExceptionForResponse(Response response) {
@@ -206,46 +689,100 @@ public class ConnectAPI {
                 }
                 return InvalidEventException.create(errors);
             case 401:
-                return new ServerException("Unauthorised. please ensure your Project Key is correct and you have supplied a valid Push Key");
+                return new ServerException("Unauthorised. please ensure your Project Key is correct and you have supplied a valid Push Key", response.code());
             default:
                 String message = null;
                 if (responseData != null && responseData.containsKey("errorMessage")) {
                     message = (String)responseData.get("errorMessage");
                 }
-                return new ServerException(message);
+                return new ServerException(message, response.code());
         }
     }
 
     protected static ConnectException getExceptionForBatchResponse(Response response) {
         if (response.isSuccessful())
             return null;
-        return new ServerException(response.message());
+        return new ServerException(response.message(), response.code());
     }
 
     protected static Map<String, Object> getDeserializedResponseBody(Response response) throws IOException {
-        Type type = new TypeToken<Map<String, Object>>() {}.getType();
-        return gson.fromJson(response.body().charStream(), type);
+        return responseAdapter.deserialize(response.body().charStream());
     }
 
+    /**
+     * Read the response to a batch as it is streamed, into {@link EventPushResponses} for each collection.
+     * @param batch The event batch that was pushed.
+     * @param response The response to the batch.
+     * @return A {@link Map} of collection name to the responses to the events pushed in that collection.
+     * @throws IOException If the response cannot be read, or does not include a response for every event.
+     */
     protected static Map<String, Iterable<EventPushResponse>> buildResponseForBatch(final Map<String, Iterable<Event>> batch, final Response response) throws IOException {
-        Map<String, Object> responseData = ConnectAPI.getDeserializedResponseBody(response);
-
         Map<String, Iterable<EventPushResponse>> result = new HashMap<String, Iterable<EventPushResponse>>();
 
-        for (String collection : batch.keySet()) {
-            Iterable<Event> pushedEvents = batch.get(collection);
-            ArrayList<Map<String, Object>> individualResponses = (ArrayList<Map<String, Object>>) responseData.get(collection);
-            ArrayList<EventPushResponse>  individualResults = new ArrayList<EventPushResponse>();
+        JsonReader reader = new JsonReader(response.body().charStream());
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String collection = reader.nextName();
+                Iterable<Event> pushedEvents = batch.get(collection);
+                if (pushedEvents == null) {
+                    reader.skipValue();
+                    continue;
+                }
 
-            int i=0;
-            for (Event event : pushedEvents) {
-                Map<String, Object> individualResponse = individualResponses.get(i++);
-                individualResults.add(new EventPushResponse(individualResponse, event));
-            }
+                Iterator<Event> events = pushedEvents.iterator();
+                EventPushResponses individualResults = new EventPushResponses(
+                        pushedEvents instanceof Collection ? ((Collection<Event>) pushedEvents).size() : 10);
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    if (events.hasNext()) {
+                        readEventResponse(reader, events.next(), individualResults);
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endArray();
+                if (events.hasNext())
+                    throw new IOException("The response to the batch is missing events in the collection '" + collection + "'.");
 
-            result.put(collection, individualResults);
+                result.put(collection, individualResults);
+            }
+            reader.endObject();
+        } catch (IllegalStateException e) {
+            // JsonReader reports JSON of the wrong shape this way.
+            throw new IOException(e.getMessage());
+        } finally {
+            reader.close();
         }
 
+        for (String collection : batch.keySet()) {
+            if (!result.containsKey(collection))
+                throw new IOException("The response to the batch is missing the collection '" + collection + "'.");
+        }
         return result;
     }
+
+    private static void readEventResponse(JsonReader reader, Event event, EventPushResponses responses) throws IOException {
+        boolean success = false;
+        boolean duplicate = false;
+        String message = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("success") && reader.peek() == JsonToken.BOOLEAN) {
+                success = reader.nextBoolean();
+            } else if (name.equals("duplicate") && reader.peek() == JsonToken.BOOLEAN) {
+                duplicate = reader.nextBoolean();
+            } else if (name.equals("message") && reader.peek() == JsonToken.STRING) {
+                message = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        // Connect already has an event with the same ID, so the event was delivered by an earlier push.
+        responses.add(event, success || duplicate, message, false);
+    }
 }
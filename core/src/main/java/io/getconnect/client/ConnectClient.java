@@ -3,20 +3,45 @@ package io.getconnect.client;
 import io.getconnect.client.exceptions.ConnectException;
 import io.getconnect.client.exceptions.ServerException;
 import io.getconnect.client.exceptions.InvalidEventException;
+import io.getconnect.client.metrics.Gauge;
+import io.getconnect.client.metrics.MetricNames;
+import io.getconnect.client.metrics.MetricsRegistry;
+import io.getconnect.client.store.CountingEventStore;
 import io.getconnect.client.store.EventStore;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Client for pushing events to Connect.
  */
 public class ConnectClient {
+    /**
+     * The default maximum number of pending events that {@link #pushPending()} leases from the event store at a time.
+     */
+    public static final int DEFAULT_PENDING_LEASE_EVENTS = 4000;
+
+    /**
+     * The default time in milliseconds after which events leased by a push that never completed are pending again.
+     */
+    public static final long DEFAULT_PENDING_LEASE_MILLIS = 5 * 60 * 1000;
+
     private final String projectId;
     private final String apiKey;
     private final EventStore eventStore;
     private final ConnectAPI connectAPI;
+    private final Object pushLock = new Object();
+    private final Object autoFlushLock = new Object();
+    private volatile AutoFlusher autoFlusher;
+    private volatile EventIdGenerator idGenerator = TimeOrderedIdGenerator.getDefault();
+    private volatile Instruments instruments = Instruments.NONE;
+    private final AtomicLong pendingEvents = new AtomicLong();
+    private volatile int pendingLeaseEvents = DEFAULT_PENDING_LEASE_EVENTS;
+    private volatile long pendingLeaseMillis = DEFAULT_PENDING_LEASE_MILLIS;
+    private volatile EventStore deadLetterStore;
 
     /**
      * Creates a new Connect client.
@@ -26,10 +51,19 @@ public class ConnectClient {
      * @param eventStore EventStore used for persistence.
      */
     public ConnectClient(String projectId, String apiKey, String baseUrl, EventStore eventStore) {
-        this.projectId = projectId;
-        this.apiKey = apiKey;
+        this(new ConnectAPI(projectId, apiKey, baseUrl), eventStore);
+    }
+
+    /**
+     * Creates a new Connect client that pushes events with a configured API client.
+     * @param connectAPI The {@link ConnectAPI} used to push events, e.g. with compression enabled.
+     * @param eventStore EventStore used for persistence.
+     */
+    public ConnectClient(ConnectAPI connectAPI, EventStore eventStore) {
+        this.projectId = connectAPI.projectId;
+        this.apiKey = connectAPI.apiKey;
         this.eventStore = eventStore;
-        this.connectAPI = new ConnectAPI(projectId, apiKey, baseUrl);
+        this.connectAPI = connectAPI;
     }
 
     /**
@@ -42,7 +76,21 @@ public class ConnectClient {
      *         or a generic {@link ConnectException} with an inner exception.
      */
     public void push(final String collection, final Map<String, Object> event) throws ConnectException {
-        this.connectAPI.pushEvent(collection, new Event(event));
+        this.connectAPI.pushEvent(collection, new Event(event, idGenerator));
+    }
+
+    /**
+     * Synchronously push an event built with an {@link EventBuilder} to a collection in Connect.
+     * The builder is reset, so it can be used for the next event.
+     * @param collection Name of the collection to which to push the event.
+     * @param event Builder containing the properties of the event to push to the collection.
+     * @throws InvalidEventException If the event or its properties are invalid.
+     * @throws ConnectException When an error occurs.
+     *         Will be {@link InvalidEventException}, {@link ServerException}
+     *         or a generic {@link ConnectException} with an inner exception.
+     */
+    public void push(final String collection, final EventBuilder event) throws ConnectException {
+        this.connectAPI.pushEvent(collection, event.build(idGenerator));
     }
 
     /**
@@ -54,7 +102,28 @@ public class ConnectClient {
     public void pushAsync(final String collection, final Map<String, Object> event, final ConnectCallback callback) {
         Event mappedEvent = null;
         try {
-            mappedEvent = new Event(event);
+            mappedEvent = new Event(event, idGenerator);
+        } catch (ConnectException e) {
+            if (callback != null) {
+                callback.onFailure(e);
+            }
+            return;
+        }
+
+        this.connectAPI.pushEvent(collection, mappedEvent, callback);
+    }
+
+    /**
+     * Asynchronously push an event built with an {@link EventBuilder} to a collection in Connect.
+     * The builder is reset before this returns, so it can be used for the next event.
+     * @param collection    Name of the collection to which to push the event.
+     * @param event         Builder containing the properties of the event to push to the collection.
+     * @param callback      A {@link ConnectCallback} that will be invoked with the result of the request.
+     */
+    public void pushAsync(final String collection, final EventBuilder event, final ConnectCallback callback) {
+        Event mappedEvent = null;
+        try {
+            mappedEvent = event.build(idGenerator);
         } catch (ConnectException e) {
             if (callback != null) {
                 callback.onFailure(e);
@@ -74,7 +143,7 @@ public class ConnectClient {
      *         or a generic {@link ConnectException} with an inner exception.
      */
     public Map<String, Iterable<EventPushResponse>> pushBatch(final Map<String, Map<String, Object>[]> batch) throws ConnectException {
-        Map<String, Iterable<Event>> eventBatch = Event.buildEventBatch(batch);
+        Map<String, Iterable<Event>> eventBatch = Event.buildEventBatch(batch, idGenerator);
         return this.connectAPI.pushEventBatch(eventBatch);
     }
 
@@ -86,7 +155,7 @@ public class ConnectClient {
     public void pushBatchAsync(final Map<String, Map<String, Object>[]> batch, final ConnectBatchCallback callback) {
         Map<String, Iterable<Event>> eventBatch = null;
         try {
-            eventBatch = Event.buildEventBatch(batch);
+            eventBatch = Event.buildEventBatch(batch, idGenerator);
         } catch (ConnectException e) {
             if (callback != null) {
                 callback.onFailure(e);
@@ -99,96 +168,457 @@ public class ConnectClient {
 
     /**
      * Add an event to the event store to be delivered later.
+     * The event is in the event store when this returns, so it is not lost if the process stops. Adding an event
+     * never waits for a push in progress, only for the event store to write it.
      * @param collection Name of the collection to which to push the event.
      * @param event Event to add to the collection.
      * @throws ConnectException When an error occurs.
      *         Will be {@link InvalidEventException} or a generic {@link ConnectException} with an inner exception.
      */
-    public synchronized void add(String collection, final Map<String, Object> event) throws ConnectException {
+    public void add(String collection, final Map<String, Object> event) throws ConnectException {
+        addEvent(collection, new Event(event, idGenerator));
+    }
+
+    /**
+     * Add an event built with an {@link EventBuilder} to the event store to be delivered later.
+     * The builder is reset, so it can be used for the next event.
+     * @param collection Name of the collection to which to push the event.
+     * @param event Builder containing the properties of the event to add to the collection.
+     * @throws ConnectException When an error occurs.
+     *         Will be {@link InvalidEventException} or a generic {@link ConnectException} with an inner exception.
+     */
+    public void add(String collection, final EventBuilder event) throws ConnectException {
+        addEvent(collection, event.build(idGenerator));
+    }
+
+    private void addEvent(String collection, Event mappedEvent) throws ConnectException {
+        // Serialize once, so the event store and the push both use the properties as they were when added.
+        mappedEvent.getEventJSONBytes();
+        Instruments metrics = this.instruments;
+        long started = System.nanoTime();
         try {
-            eventStore.add(collection, new Event(event));
+            eventStore.add(collection, mappedEvent);
         } catch (IOException e) {
             throw new ConnectException(e);
+        } finally {
+            metrics.storeAddDuration.record(System.nanoTime() - started);
+        }
+        pendingEvents.incrementAndGet();
+        metrics.eventsAdded.increment(1);
+
+        AutoFlusher flusher = this.autoFlusher;
+        if (flusher != null) {
+            flusher.onEventAdded(mappedEvent);
         }
     }
 
     /**
      * Push the pending events stored to Connect synchronously.
+     * The events are leased from the event store and pushed a batch at a time (see {@link #setPendingLease(int, long)}),
+     * so a large backlog is not read into memory at once. Events that could not be pushed are released once every
+     * batch has been pushed, so the next call pushes them again.
      * @return A {@link Map} of collection name to an array of responses to individual events pushed from the queue.
      * @throws ConnectException When an error occurs.
      *         Will be {@link InvalidEventException}, {@Link ServerException}
      *         or a generic {@link ConnectException} with an inner exception.
+     *         Batches pushed before the error remain acknowledged.
      */
-    public synchronized Map<String, Iterable<EventPushResponse>> pushPending() throws ConnectException {
+    public Map<String, Iterable<EventPushResponse>> pushPending() throws ConnectException {
+        synchronized (pushLock) {
+            long started = System.nanoTime();
+            HashMap<String, Iterable<EventPushResponse>> responses = new HashMap<String, Iterable<EventPushResponse>>();
+            // Events that were not pushed stay leased until the last batch, so they are not leased again by this push.
+            HashMap<String, Iterable<Event>> unpushed = new HashMap<String, Iterable<Event>>();
+            Map<String, Iterable<Event>> eventBatch = null;
+            try {
+                int maxEvents = this.pendingLeaseEvents;
+                long leaseMillis = this.pendingLeaseMillis;
+                while (true) {
+                    try {
+                        eventBatch = this.leasePendingEvents(maxEvents, leaseMillis);
+                    } catch (IOException e) {
+                        throw new ConnectException(e);
+                    }
 
-        Map<String, Iterable<Event>> eventBatch = null;
-        try {
-            eventBatch = this.eventStore.readAll();
-        } catch (IOException e) {
-            throw new ConnectException(e);
-        }
+                    int batchEvents = ConnectAPI.countEvents(eventBatch);
+                    if (batchEvents < 1)
+                        return responses;
 
-        if (eventBatch.size() < 1) {
-            return new HashMap<String, Iterable<EventPushResponse>>();
-        }
+                    Map<String, Iterable<EventPushResponse>> details = this.connectAPI.pushEventBatch(eventBatch);
+                    eventBatch = null;
+                    this.updateStoreWithResponse(details);
+                    addResponses(responses, unpushed, details);
 
-        Map<String, Iterable<EventPushResponse>> details = this.connectAPI.pushEventBatch(eventBatch);
-        this.updateStoreWithResponse(details);
-        return details;
+                    if (maxEvents <= 0 || batchEvents < maxEvents)
+                        return responses;
+                }
+            } finally {
+                if (eventBatch != null) {
+                    this.releaseEvents(eventBatch);
+                }
+                this.releaseEvents(unpushed);
+                instruments.pushPendingDuration.record(System.nanoTime() - started);
+            }
+        }
     }
 
     /**
      * Push the pending events stored to Connect asynchronously.
+     * Like {@link #pushPending()}, the events are leased from the event store and pushed a batch at a time, the next
+     * batch being leased once the previous one completes. Events leased by a push that is still in progress are not
+     * pushed again by a push started at the same time, which only pushes the events no other push has claimed.
      * @param callback A {@link ConnectBatchCallback} that will be invoked with the result of the request.
      */
-    public synchronized void pushPendingAsync(final ConnectBatchCallback callback) {
+    public void pushPendingAsync(final ConnectBatchCallback callback) {
+        new AsyncPendingPush(this.pendingLeaseEvents, this.pendingLeaseMillis, callback).pushNextBatch();
+    }
 
-        Map<String, Iterable<Event>> eventBatch = null;
+    /**
+     * Sets the generator of the IDs of events created by this client.
+     * By default IDs are time-ordered UUIDs from a {@link TimeOrderedIdGenerator}.
+     * @param idGenerator The {@link EventIdGenerator} to use.
+     */
+    public void setIdGenerator(EventIdGenerator idGenerator) {
+        this.idGenerator = idGenerator == null ? TimeOrderedIdGenerator.getDefault() : idGenerator;
+    }
+
+    /**
+     * Sets the registry of the metrics recorded by this client and its {@link ConnectAPI}, such as the events added and
+     * pushed, request latencies, responses by status code, the time spent pushing pending events and in the event store,
+     * and the number of pending events. See {@link MetricNames} for the metrics. By default no metrics are recorded.
+     * @param metrics The {@link MetricsRegistry} to record to, or null for none.
+     */
+    public void setMetrics(MetricsRegistry metrics) {
+        Instruments instruments = Instruments.create(metrics);
+        this.instruments = instruments;
+        this.connectAPI.setInstruments(instruments);
+        if (metrics != null) {
+            metrics.gauge(MetricNames.EVENTS_PENDING, new Gauge() {
+                @Override
+                public long getValue() {
+                    if (eventStore instanceof CountingEventStore)
+                        return ((CountingEventStore) eventStore).getPendingEvents();
+                    return Math.max(0, pendingEvents.get());
+                }
+            });
+        }
+    }
+
+    /**
+     * Sets how many pending events {@link #pushPending()} leases from the event store at a time, and for how long.
+     * Each batch is pushed before the next is leased, so memory use doesn't grow with the backlog. Events leased by
+     * a push that never completed, for example because the thread was interrupted, are pending again once the lease expires.
+     * @param maxEvents The maximum number of events leased at a time, or 0 to lease every pending event at once.
+     *                  Defaults to {@link #DEFAULT_PENDING_LEASE_EVENTS}.
+     * @param leaseMillis Time in milliseconds after which leased events that were not acknowledged are pending again.
+     *                    This should be longer than a batch takes to push. Defaults to {@link #DEFAULT_PENDING_LEASE_MILLIS}.
+     */
+    public void setPendingLease(int maxEvents, long leaseMillis) {
+        this.pendingLeaseEvents = maxEvents;
+        this.pendingLeaseMillis = leaseMillis;
+    }
+
+    /**
+     * Sets the store to which pending events that Connect rejects are moved, along with the message Connect gave,
+     * so they are not pushed again. Events whose push failed for another reason, such as the network being
+     * unavailable, stay pending. There is no dead-letter store by default, so rejected events stay pending too.
+     * Use a persistent store alongside the event store, so rejected events are not lost when the process stops.
+     * @param deadLetterStore The {@link EventStore} to which to move rejected events,
+     *                        or null to leave them pending so they are pushed again.
+     */
+    public void setDeadLetterStore(EventStore deadLetterStore) {
+        this.deadLetterStore = deadLetterStore;
+    }
+
+    /**
+     * Get the pending events that Connect rejected, from the dead-letter store.
+     * @return A {@link Map} of collection name to the events rejected in that collection.
+     * @throws ConnectException If there is a problem reading the dead-letter store.
+     */
+    public Map<String, Iterable<RejectedEvent>> getDeadLetters() throws ConnectException {
+        HashMap<String, Iterable<RejectedEvent>> deadLetters = new HashMap<String, Iterable<RejectedEvent>>();
+        EventStore store = this.deadLetterStore;
+        if (store == null)
+            return deadLetters;
+
+        Map<String, Iterable<Event>> stored;
         try {
-            eventBatch = this.eventStore.readAll();
+            stored = store.readAll();
         } catch (IOException e) {
-            if (callback != null) {
-                callback.onFailure(new ConnectException(e));
+            throw new ConnectException(e);
+        }
+
+        for (Map.Entry<String, Iterable<Event>> collection : stored.entrySet()) {
+            ArrayList<RejectedEvent> rejected = new ArrayList<RejectedEvent>();
+            for (Event event : collection.getValue()) {
+                rejected.add(RejectedEvent.fromStoredEvent(event));
             }
+            if (!rejected.isEmpty()) {
+                deadLetters.put(collection.getKey(), rejected);
+            }
+        }
+        return deadLetters;
+    }
+
+    /**
+     * Remove rejected events from the dead-letter store, for example once they have been inspected or fixed and added again.
+     * @param collection The collection in which the events were rejected.
+     * @param events The rejected events to remove, as returned by {@link #getDeadLetters()}.
+     * @throws ConnectException If there is a problem removing the events from the dead-letter store.
+     */
+    public void purgeDeadLetters(String collection, Iterable<RejectedEvent> events) throws ConnectException {
+        EventStore store = this.deadLetterStore;
+        if (store == null)
             return;
+
+        ArrayList<Event> purged = new ArrayList<Event>();
+        for (RejectedEvent event : events) {
+            purged.add(event.getEvent());
         }
+        try {
+            store.acknowledge(collection, purged);
+        } catch (IOException e) {
+            throw new ConnectException(e);
+        }
+    }
 
-        if (eventBatch.size() < 1) {
-            if (callback != null) {
-                callback.onSuccess(new HashMap<String, Iterable<EventPushResponse>>());
+    /**
+     * Remove every rejected event from the dead-letter store.
+     * @throws ConnectException If there is a problem removing the events from the dead-letter store.
+     */
+    public void purgeDeadLetters() throws ConnectException {
+        for (Map.Entry<String, Iterable<RejectedEvent>> collection : getDeadLetters().entrySet()) {
+            purgeDeadLetters(collection.getKey(), collection.getValue());
+        }
+    }
+
+    /**
+     * Start pushing pending events automatically on a background thread.
+     * A push is triggered whenever one of the thresholds of the policy is crossed. Triggers that arrive
+     * while a push is already queued are coalesced into that push.
+     * @param policy The {@link FlushPolicy} that determines when pending events are pushed.
+     */
+    public void startAutoFlush(FlushPolicy policy) {
+        startAutoFlush(policy, null);
+    }
+
+    /**
+     * Start pushing pending events automatically on a background thread.
+     * A push is triggered whenever one of the thresholds of the policy is crossed. Triggers that arrive
+     * while a push is already queued are coalesced into that push.
+     * @param policy The {@link FlushPolicy} that determines when pending events are pushed.
+     * @param callback A {@link ConnectBatchCallback} that will be invoked with the result of each automatic push.
+     */
+    public void startAutoFlush(FlushPolicy policy, ConnectBatchCallback callback) {
+        synchronized (autoFlushLock) {
+            if (this.autoFlusher != null) {
+                throw new IllegalStateException("Auto flush has already been started.");
             }
-            return;
+            AutoFlusher flusher = new AutoFlusher(this, policy, callback);
+            flusher.start();
+            this.autoFlusher = flusher;
+        }
+    }
+
+    /**
+     * Stop pushing pending events automatically, pushing any events that are still pending first.
+     * @param timeoutMillis Maximum time in milliseconds to wait for the final push to complete.
+     * @return Whether the background thread stopped within the timeout.
+     */
+    public boolean stopAutoFlush(long timeoutMillis) {
+        AutoFlusher flusher;
+        synchronized (autoFlushLock) {
+            flusher = this.autoFlusher;
+            this.autoFlusher = null;
         }
 
-        this.connectAPI.pushEventBatch(eventBatch, new ConnectBatchCallback() {
-            @Override
-            public void onSuccess(Map<String, Iterable<EventPushResponse>> details) {
-                ConnectClient.this.updateStoreWithResponse(details);
-                if (callback != null) {
-                    callback.onSuccess(details);
+        return flusher == null || flusher.shutdown(timeoutMillis);
+    }
+
+    /**
+     * Acknowledge the events that were pushed, and the events that Connect rejected once they have been moved
+     * to the dead-letter store. Events whose push can be retried stay pending.
+     * @param details A {@link Map} of collection name to the responses to the events pushed in that collection.
+     */
+    protected void updateStoreWithResponse(Map<String, Iterable<EventPushResponse>> details) {
+        EventStore deadLetters = this.deadLetterStore;
+        for (String collection : details.keySet()) {
+            EventPushResponses responses = EventPushResponses.of(details.get(collection));
+            ArrayList<Event> acknowledged = new ArrayList<Event>(responses.getSuccessCount());
+            for (int i = 0; i < responses.size(); i++) {
+                if (responses.isSuccessful(i) ||
+                        (deadLetters != null && !responses.isRetryable(i) && addDeadLetter(deadLetters, collection, responses, i))) {
+                    acknowledged.add(responses.getEvent(i));
                 }
             }
 
-            @Override
-            public void onFailure(ConnectException e) {
-                if (callback != null) {
-                    callback.onFailure(e);
-                }
+            if (acknowledged.isEmpty())
+                continue;
+
+            long started = System.nanoTime();
+            try {
+                eventStore.acknowledge(collection, acknowledged);
+                pendingEvents.addAndGet(-acknowledged.size());
+            } catch (IOException e) {
+                // ignore, it will try again on the next pass.
+            } finally {
+                instruments.storeAcknowledgeDuration.record(System.nanoTime() - started);
             }
-        });
+        }
     }
 
-    protected synchronized void updateStoreWithResponse(Map<String, Iterable<EventPushResponse>> details) {
-        for (String collection : details.keySet()) {
-            for (EventPushResponse eventResponse : details.get(collection)) {
-                if (eventResponse.isSuccessful()) {
-                    try {
-                        eventStore.acknowledge(collection, eventResponse.getEvent());
-                    } catch (IOException e) {
-                        // ignore, it will try again on the next pass.
+    /**
+     * Whether an event stays pending after its push, so the next push sends it again:
+     * its push failed and it was not moved to the dead-letter store.
+     * @param responses The responses to the events pushed in a collection.
+     * @param index The position of the event in the responses.
+     * @return Whether the event is still pending.
+     */
+    boolean staysPending(EventPushResponses responses, int index) {
+        return !responses.isSuccessful(index) && (responses.isRetryable(index) || this.deadLetterStore == null);
+    }
+
+    /**
+     * Move an event that Connect rejected to the dead-letter store.
+     * @return Whether the event was added to the dead-letter store, so it can be acknowledged.
+     */
+    private boolean addDeadLetter(EventStore deadLetters, String collection, EventPushResponses responses, int index) {
+        try {
+            deadLetters.add(collection, new RejectedEvent(responses.getEvent(index), responses.getMessage(index)).toStoredEvent());
+        } catch (IOException e) {
+            // leave the event pending, it will be moved on the next pass.
+            return false;
+        }
+        instruments.eventsDeadLettered.increment(1);
+        return true;
+    }
+
+    /**
+     * Lease a batch of pending events from the event store.
+     * @param maxEvents The maximum number of events to lease, or 0 for no limit.
+     * @param leaseMillis Time in milliseconds for which the events are leased.
+     * @return A {@link Map} of collection name to the events leased in that collection.
+     * @throws IOException If there is a problem reading the event store.
+     */
+    private Map<String, Iterable<Event>> leasePendingEvents(int maxEvents, long leaseMillis) throws IOException {
+        long started = System.nanoTime();
+        Map<String, Iterable<Event>> eventBatch = this.eventStore.lease(maxEvents, leaseMillis);
+        instruments.storeReadDuration.record(System.nanoTime() - started);
+        return eventBatch;
+    }
+
+    /**
+     * Release leased events that were not pushed, so the next push leases them again.
+     * @param events A {@link Map} of collection name to the events to release.
+     */
+    private void releaseEvents(Map<String, Iterable<Event>> events) {
+        for (Map.Entry<String, Iterable<Event>> collection : events.entrySet()) {
+            try {
+                eventStore.release(collection.getKey(), collection.getValue());
+            } catch (IOException e) {
+                // ignore, the events are pending again once the lease expires.
+            }
+        }
+    }
+
+    /**
+     * Add the responses to a batch to the responses of the batches pushed before it, along with the events that failed.
+     */
+    private static void addResponses(Map<String, Iterable<EventPushResponse>> responses, Map<String, Iterable<Event>> unpushed,
+                                     Map<String, Iterable<EventPushResponse>> details) {
+        for (Map.Entry<String, Iterable<EventPushResponse>> collection : details.entrySet()) {
+            EventPushResponses collectionResponses = (EventPushResponses) responses.get(collection.getKey());
+            if (collectionResponses == null) {
+                collectionResponses = new EventPushResponses();
+                responses.put(collection.getKey(), collectionResponses);
+            }
+
+            int added = collectionResponses.size();
+            collectionResponses.addAll(collection.getValue());
+            for (int i = added; i < collectionResponses.size(); i++) {
+                if (!collectionResponses.isSuccessful(i)) {
+                    ArrayList<Event> failed = (ArrayList<Event>) unpushed.get(collection.getKey());
+                    if (failed == null) {
+                        failed = new ArrayList<Event>();
+                        unpushed.put(collection.getKey(), failed);
                     }
+                    failed.add(collectionResponses.getEvent(i));
                 }
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * A push started by {@link #pushPendingAsync(ConnectBatchCallback)}, which leases and pushes the next batch of
+     * pending events each time a batch completes.
+     */
+    private class AsyncPendingPush implements ConnectBatchCallback {
+        private final int maxEvents;
+        private final long leaseMillis;
+        private final ConnectBatchCallback callback;
+        private final long started = System.nanoTime();
+        private final HashMap<String, Iterable<EventPushResponse>> responses = new HashMap<String, Iterable<EventPushResponse>>();
+        // Events that were not pushed stay leased until the last batch, so they are not leased again by this push.
+        private final HashMap<String, Iterable<Event>> unpushed = new HashMap<String, Iterable<Event>>();
+        private Map<String, Iterable<Event>> eventBatch;
+        private int batchEvents;
+
+        AsyncPendingPush(int maxEvents, long leaseMillis, ConnectBatchCallback callback) {
+            this.maxEvents = maxEvents;
+            this.leaseMillis = leaseMillis;
+            this.callback = callback;
+        }
+
+        void pushNextBatch() {
+            try {
+                eventBatch = leasePendingEvents(maxEvents, leaseMillis);
+            } catch (IOException e) {
+                finish(new ConnectException(e));
+                return;
+            }
+
+            batchEvents = ConnectAPI.countEvents(eventBatch);
+            if (batchEvents < 1) {
+                finish(null);
+                return;
+            }
+
+            connectAPI.pushEventBatch(eventBatch, this);
+        }
+
+        @Override
+        public void onSuccess(Map<String, Iterable<EventPushResponse>> details) {
+            eventBatch = null;
+            updateStoreWithResponse(details);
+            addResponses(responses, unpushed, details);
+
+            if (maxEvents <= 0 || batchEvents < maxEvents) {
+                finish(null);
+            } else {
+                pushNextBatch();
+            }
+        }
+
+        @Override
+        public void onFailure(ConnectException e) {
+            finish(e);
+        }
+
+        private void finish(ConnectException error) {
+            if (eventBatch != null) {
+                releaseEvents(eventBatch);
+            }
+            releaseEvents(unpushed);
+            instruments.pushPendingDuration.record(System.nanoTime() - started);
+
+            if (callback == null)
+                return;
+
+            if (error != null) {
+                callback.onFailure(error);
+            } else {
+                callback.onSuccess(responses);
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package io.getconnect.client;
+
+import com.squareup.okhttp.ConnectionPool;
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.Protocol;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The HTTP transport used to send requests to the Connect API: a connection pool, a dispatcher
+ * limiting concurrent requests and the connection timeouts.
+ * A single transport can be shared by any number of {@link ConnectAPI} instances, so clients for
+ * different projects reuse the same connections to the Connect API (and the same HTTP/2 connection
+ * where the server supports it) instead of each keeping a pool of their own.
+ * Unless another transport is given, every {@link ConnectAPI} uses the shared default transport.
+ */
+public class ConnectTransport {
+    /**
+     * The default maximum number of idle connections kept in the pool.
+     */
+    public static final int DEFAULT_MAX_IDLE_CONNECTIONS = 5;
+
+    /**
+     * The default time in milliseconds an idle connection is kept alive in the pool.
+     */
+    public static final long DEFAULT_KEEP_ALIVE_MILLIS = 5 * 60 * 1000;
+
+    /**
+     * The default connect, read and write timeout in milliseconds.
+     */
+    public static final long DEFAULT_TIMEOUT_MILLIS = 10000;
+
+    /**
+     * The default maximum number of requests in flight to the Connect API at the same time.
+     */
+    public static final int DEFAULT_MAX_REQUESTS_PER_HOST = 8;
+
+    private static ConnectTransport defaultTransport;
+
+    private final OkHttpClient client;
+
+    /**
+     * Creates a new transport with its own connection pool, using the default settings.
+     */
+    public ConnectTransport() {
+        this(new OkHttpClient());
+        setConnectionPool(DEFAULT_MAX_IDLE_CONNECTIONS, DEFAULT_KEEP_ALIVE_MILLIS);
+        setTimeouts(DEFAULT_TIMEOUT_MILLIS, DEFAULT_TIMEOUT_MILLIS, DEFAULT_TIMEOUT_MILLIS);
+        setMaxRequestsPerHost(DEFAULT_MAX_REQUESTS_PER_HOST);
+        setHttp2Enabled(true);
+    }
+
+    /**
+     * Creates a new transport that sends requests with an existing OkHttp client, keeping its settings.
+     * @param client The {@link OkHttpClient} with which to send requests.
+     */
+    public ConnectTransport(OkHttpClient client) {
+        if (client == null)
+            throw new IllegalArgumentException("The client must not be null.");
+
+        this.client = client;
+    }
+
+    /**
+     * Gets the transport shared by every {@link ConnectAPI} that is not given a transport of its own.
+     * @return The shared default transport.
+     */
+    public static synchronized ConnectTransport getDefault() {
+        if (defaultTransport == null) {
+            defaultTransport = new ConnectTransport();
+        }
+        return defaultTransport;
+    }
+
+    /**
+     * Sets the size of the pool of idle connections and how long they are kept alive.
+     * @param maxIdleConnections The maximum number of idle connections kept in the pool.
+     * @param keepAliveMillis The time in milliseconds an idle connection is kept before it is closed.
+     * @return This transport.
+     */
+    public ConnectTransport setConnectionPool(int maxIdleConnections, long keepAliveMillis) {
+        client.setConnectionPool(new ConnectionPool(maxIdleConnections, keepAliveMillis));
+        return this;
+    }
+
+    /**
+     * Sets the connect, read and write timeouts of requests.
+     * @param connectTimeoutMillis The connect timeout in milliseconds, or 0 for no timeout.
+     * @param readTimeoutMillis The read timeout in milliseconds, or 0 for no timeout.
+     * @param writeTimeoutMillis The write timeout in milliseconds, or 0 for no timeout.
+     * @return This transport.
+     */
+    public ConnectTransport setTimeouts(long connectTimeoutMillis, long readTimeoutMillis, long writeTimeoutMillis) {
+        client.setConnectTimeout(connectTimeoutMillis, TimeUnit.MILLISECONDS);
+        client.setReadTimeout(readTimeoutMillis, TimeUnit.MILLISECONDS);
+        client.setWriteTimeout(writeTimeoutMillis, TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of asynchronous requests in flight to the same host at once.
+     * Further requests are queued until one completes.
+     * @param maxRequestsPerHost The maximum number of concurrent requests per host.
+     * @return This transport.
+     */
+    public ConnectTransport setMaxRequestsPerHost(int maxRequestsPerHost) {
+        client.getDispatcher().setMaxRequestsPerHost(maxRequestsPerHost);
+        return this;
+    }
+
+    /**
+     * Sets whether requests are multiplexed over a single HTTP/2 connection when the server and platform support it.
+     * @param http2Enabled Whether HTTP/2 is negotiated.
+     * @return This transport.
+     */
+    public ConnectTransport setHttp2Enabled(boolean http2Enabled) {
+        if (http2Enabled) {
+            client.setProtocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1));
+        } else {
+            client.setProtocols(Collections.singletonList(Protocol.HTTP_1_1));
+        }
+        return this;
+    }
+
+    /**
+     * Gets the OkHttp client that sends the requests of this transport.
+     * @return The {@link OkHttpClient} of this transport.
+     */
+    public OkHttpClient getHttpClient() {
+        return client;
+    }
+}
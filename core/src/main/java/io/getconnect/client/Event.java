@@ -1,14 +1,22 @@
 package io.getconnect.client;
 
 import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
-import java.lang.reflect.Type;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.UUID;
 
 import io.getconnect.client.exceptions.InvalidEventException;
 
@@ -17,10 +25,15 @@ import io.getconnect.client.exceptions.InvalidEventException;
  */
 public class Event {
     private static final Gson gson = GsonUTCDateAdapter.createSerializer();
+    private static final EventDataAdapter eventDataAdapter = new EventDataAdapter(gson);
 
-    protected final String reservedPrefix = "tp_";
-    protected final Map<String, Object> eventData;
+    private static final String RESERVED_PREFIX = "tp_";
+
+    protected final String reservedPrefix = RESERVED_PREFIX;
+    protected volatile Map<String, Object> eventData;
     protected String eventStoreId;
+    private final EventIdGenerator idGenerator;
+    private volatile byte[] eventJSON;
 
     /**
      * Create a new event to push to Connect.
@@ -29,20 +42,50 @@ public class Event {
      * @param eventData A {@link java.util.Map} containing the event properties to push to Connect.
      */
     public Event(Map<String, Object> eventData) throws InvalidEventException {
-        this(eventData, UUID.randomUUID().toString());
+        this(eventData, TimeOrderedIdGenerator.getDefault());
     }
 
-    private Event(Map<String, Object> eventData, String eventStoreId) throws InvalidEventException {
+    /**
+     * Create a new event to push to Connect, generating its IDs with the given generator.
+     * @param eventData A {@link java.util.Map} containing the event properties to push to Connect.
+     * @param idGenerator The {@link EventIdGenerator} used for the event store ID and, if none is provided, the "id" property.
+     */
+    public Event(Map<String, Object> eventData, EventIdGenerator idGenerator) throws InvalidEventException {
         this.eventData = eventData;
-        this.eventStoreId = eventStoreId;
+        this.idGenerator = idGenerator;
+        this.eventStoreId = idGenerator.generateId();
         validateProperties();
         setDefaultProperties();
     }
 
+    Event(byte[] eventJSON, String eventStoreId) {
+        this.eventJSON = eventJSON;
+        this.eventStoreId = eventStoreId;
+        this.idGenerator = TimeOrderedIdGenerator.getDefault();
+    }
+
     public static Event fromEventStore(String eventJSON, String eventStoreId) {
-        Type type = new TypeToken<Map<String, Object>>(){}.getType();
-        Map<String, Object> eventData = gson.fromJson(eventJSON, type);
-        return new Event(eventData, eventStoreId);
+        return fromEventStore(toUTF8(eventJSON), eventStoreId);
+    }
+
+    /**
+     * Create an event from the JSON kept in an event store.
+     * The JSON is pushed exactly as it was stored. It is checked to be a single well-formed JSON object without
+     * building the properties, which are only parsed if they are read.
+     * @param eventJSON The UTF-8 encoded JSON of the event properties.
+     * @param eventStoreId The ID used for storing the event in the event store.
+     * @return The event.
+     * @throws JsonSyntaxException If the stored JSON is not a well-formed JSON object.
+     */
+    public static Event fromEventStore(byte[] eventJSON, String eventStoreId) throws JsonSyntaxException {
+        try {
+            if (!isJSONObject(eventJSON)) {
+                throw new JsonSyntaxException("The stored event '" + eventStoreId + "' is not a JSON object.");
+            }
+        } catch (IOException e) {
+            throw new JsonSyntaxException("The stored event '" + eventStoreId + "' is not valid JSON.", e);
+        }
+        return new Event(eventJSON, eventStoreId);
     }
 
     /**
@@ -50,7 +93,12 @@ public class Event {
      * @return A {@link java.util.Map} containing the event properties.
      */
     public Map<String, Object> getEventData() {
-        return eventData;
+        Map<String, Object> data = eventData;
+        if (data == null) {
+            data = eventDataAdapter.deserialize(fromUTF8(eventJSON));
+            eventData = data;
+        }
+        return data;
     }
 
     /**
@@ -58,7 +106,22 @@ public class Event {
      * @return A string containing the event properties as JSON.
      */
     public String getEventJSON() {
-        return Event.gson.toJson(this.eventData);
+        return fromUTF8(getEventJSONBytes());
+    }
+
+    /**
+     * Get the properties of the event as UTF-8 encoded JSON, which is used both to store and to push the event.
+     * The properties are serialized the first time this is called and the JSON is kept, so changes made
+     * to the properties after that are not included. The returned array must not be modified.
+     * @return The UTF-8 encoded JSON of the event properties.
+     */
+    public byte[] getEventJSONBytes() {
+        byte[] json = eventJSON;
+        if (json == null) {
+            json = toUTF8(eventDataAdapter.serialize(eventData));
+            eventJSON = json;
+        }
+        return json;
     }
 
     /**
@@ -66,7 +129,7 @@ public class Event {
      * @return A {@link java.lang.String} containing the event ID.
      */
     public String getId() {
-        return eventData.get("id").toString();
+        return getEventData().get("id").toString();
     }
 
     /**
@@ -79,7 +142,7 @@ public class Event {
 
     protected void setDefaultProperties() {
         if (!eventData.containsKey("id")) {
-            eventData.put("id", UUID.randomUUID().toString());
+            eventData.put("id", idGenerator.generateId());
         }
         if (!eventData.containsKey("timestamp")) {
             eventData.put("timestamp", new Date());
@@ -91,27 +154,49 @@ public class Event {
             throw new InvalidEventException("The event cannot be sent. It contains no properties");
         }
 
-        HashMap<String, String> invalidProperties = new HashMap<String, String>();
+        HashMap<String, String> invalidProperties = null;
 
         for (String key : this.eventData.keySet()) {
-            if (key.startsWith(this.reservedPrefix))
-                invalidProperties.put(key, "Property names cannot start with the reserved prefix '" + this.reservedPrefix + "'");
-            if (key.contains("."))
-                invalidProperties.put(key, "Property names cannot contain a period (.)");
+            String error = getPropertyNameError(key);
+            if (error == null)
+                continue;
+
+            if (invalidProperties == null) {
+                invalidProperties = new HashMap<String, String>();
+            }
+            invalidProperties.put(key, error);
         }
 
-        if (!invalidProperties.isEmpty()) {
+        if (invalidProperties != null) {
             throw InvalidEventException.create(invalidProperties);
         }
     }
 
+    /**
+     * Check whether a property name may be used for an event.
+     * @param name The property name.
+     * @return The reason the name is invalid, or null if it is valid.
+     */
+    static String getPropertyNameError(String name) {
+        String error = null;
+        if (name.startsWith(RESERVED_PREFIX))
+            error = "Property names cannot start with the reserved prefix '" + RESERVED_PREFIX + "'";
+        if (name.contains("."))
+            error = "Property names cannot contain a period (.)";
+        return error;
+    }
+
     public static Map<String, Iterable<Event>> buildEventBatch(Map<String, Map<String, Object>[]> events) throws InvalidEventException {
+        return buildEventBatch(events, TimeOrderedIdGenerator.getDefault());
+    }
+
+    public static Map<String, Iterable<Event>> buildEventBatch(Map<String, Map<String, Object>[]> events, EventIdGenerator idGenerator) throws InvalidEventException {
         Map<String, Iterable<Event>> mappedEvents = new HashMap<String, Iterable<Event>>();
 
         for (String collection : events.keySet()) {
             ArrayList<Event> newEvents = new ArrayList<Event>();
             for (Map<String, Object> event : events.get(collection)) {
-                newEvents.add(new Event(event));
+                newEvents.add(new Event(event, idGenerator));
             }
             mappedEvents.put(collection, newEvents);
         }
@@ -120,16 +205,86 @@ public class Event {
     }
 
     public static String getJSONForEventBatch(Map<String, Iterable<Event>> eventBatch) {
-        Map<String, Iterable<Map<String, Object>>> batchEventData = new HashMap<String, Iterable<Map<String, Object>>>();
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        try {
+            writeEventBatch(eventBatch, json);
+        } catch (IOException e) {
+            // ByteArrayOutputStream does not throw
+            throw new IllegalStateException(e);
+        }
+        return fromUTF8(json.toByteArray());
+    }
+
+    /**
+     * Write a batch of events as UTF-8 encoded JSON, one event at a time.
+     * The JSON of each event is copied as it is into the batch, without serializing its properties again.
+     * @param eventBatch A {@link Map} of collection name to events in that collection.
+     * @param out The {@link OutputStream} to which to write the batch.
+     * @throws IOException If there is a problem writing to the stream.
+     */
+    public static void writeEventBatch(Map<String, Iterable<Event>> eventBatch, OutputStream out) throws IOException {
+        out.write('{');
+        boolean firstCollection = true;
+        for (Map.Entry<String, Iterable<Event>> collection : eventBatch.entrySet()) {
+            if (!firstCollection) {
+                out.write(',');
+            }
+            firstCollection = false;
 
-        for (String collection : eventBatch.keySet()) {
-            ArrayList<Map<String, Object>> collectionEventData = new ArrayList<Map<String, Object>>();
-            for (Event event : eventBatch.get(collection)) {
-                collectionEventData.add(event.getEventData());
+            out.write(toJSONString(collection.getKey()));
+            out.write(':');
+            out.write('[');
+            boolean firstEvent = true;
+            for (Event event : collection.getValue()) {
+                if (!firstEvent) {
+                    out.write(',');
+                }
+                firstEvent = false;
+                out.write(event.getEventJSONBytes());
             }
-            batchEventData.put(collection, collectionEventData);
+            out.write(']');
         }
+        out.write('}');
+    }
+
+    static byte[] toJSONString(String value) throws IOException {
+        StringWriter json = new StringWriter();
+        JsonWriter writer = new JsonWriter(json);
+        writer.setLenient(true);
+        EventDataAdapter.configure(writer);
+        writer.value(value);
+        writer.flush();
+        return toUTF8(json.toString());
+    }
 
-        return gson.toJson(batchEventData);
+    private static boolean isJSONObject(byte[] json) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(json), "UTF-8"));
+        try {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT)
+                return false;
+
+            reader.skipValue();
+            return reader.peek() == JsonToken.END_DOCUMENT;
+        } catch (IllegalStateException e) {
+            throw new IOException(e.getMessage());
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static byte[] toUTF8(String value) {
+        try {
+            return value.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String fromUTF8(byte[] value) {
+        try {
+            return new String(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
     }
 }
@@ -0,0 +1,34 @@
+package io.getconnect.client;
+
+import com.squareup.okhttp.MediaType;
+import com.squareup.okhttp.RequestBody;
+
+import java.io.IOException;
+import java.util.Map;
+
+import okio.BufferedSink;
+
+/**
+ * Request body that writes a batch of events straight into the request as it is sent,
+ * rather than building the whole batch as a string first.
+ */
+class EventBatchRequestBody extends RequestBody {
+    private final MediaType contentType;
+    private final Map<String, Iterable<Event>> batch;
+
+    EventBatchRequestBody(MediaType contentType, Map<String, Iterable<Event>> batch) {
+        this.contentType = contentType;
+        this.batch = batch;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return contentType;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        // The JSON of each event is spliced in as it is, so the batch is never serialized again.
+        Event.writeEventBatch(batch, sink.outputStream());
+    }
+}
@@ -0,0 +1,399 @@
+package io.getconnect.client;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+
+import io.getconnect.client.exceptions.InvalidEventException;
+
+/**
+ * Builds an event by writing its properties straight into a reusable JSON buffer, without a {@link java.util.Map}
+ * of the properties or boxing numbers, for recording events where allocation matters.
+ * The JSON is the same as for an {@link Event} created from a map with the same properties in the same order.
+ * <p>
+ * Properties of nested objects are written between {@link #beginObject(String)} and {@link #endObject()}.
+ * {@link #build()} creates the event and resets the builder so that it can be used for the next event.
+ * A builder is not thread safe; keep one for each thread that records events.
+ * </p>
+ */
+public class EventBuilder {
+    private static final int DEFAULT_CAPACITY = 512;
+    private static final byte[][] REPLACEMENT_CHARS = new byte[128][];
+    private static final byte[] HEX_DIGITS = { '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f' };
+    private static final byte[] TRUE = { 't', 'r', 'u', 'e' };
+    private static final byte[] FALSE = { 'f', 'a', 'l', 's', 'e' };
+
+    static {
+        // The same escaping as Gson's HTML-safe JsonWriter.
+        for (int c = 0; c < 0x20; c++) {
+            REPLACEMENT_CHARS[c] = unicodeEscape(c);
+        }
+        REPLACEMENT_CHARS['"'] = new byte[] { '\\', '"' };
+        REPLACEMENT_CHARS['\\'] = new byte[] { '\\', '\\' };
+        REPLACEMENT_CHARS['\t'] = new byte[] { '\\', 't' };
+        REPLACEMENT_CHARS['\b'] = new byte[] { '\\', 'b' };
+        REPLACEMENT_CHARS['\n'] = new byte[] { '\\', 'n' };
+        REPLACEMENT_CHARS['\r'] = new byte[] { '\\', 'r' };
+        REPLACEMENT_CHARS['\f'] = new byte[] { '\\', 'f' };
+        REPLACEMENT_CHARS['<'] = unicodeEscape('<');
+        REPLACEMENT_CHARS['>'] = unicodeEscape('>');
+        REPLACEMENT_CHARS['&'] = unicodeEscape('&');
+        REPLACEMENT_CHARS['='] = unicodeEscape('=');
+        REPLACEMENT_CHARS['\''] = unicodeEscape('\'');
+    }
+
+    private byte[] buffer;
+    private int length;
+    private final char[] dateBuffer = new char[UTCDateFormat.LENGTH];
+
+    // Whether each open object, starting with the event itself, has a property written yet.
+    private boolean[] hasProperties = new boolean[4];
+    private int depth;
+    private int propertyStart;
+    private boolean propertyStartHadProperties;
+
+    private String[] names = new String[16];
+    private int nameCount;
+    private boolean hasId;
+    private boolean hasTimestamp;
+    private HashMap<String, String> invalidProperties;
+
+    /**
+     * Creates a new event builder.
+     */
+    public EventBuilder() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new event builder.
+     * @param initialCapacity The initial size in bytes of the buffer for the JSON, which grows as needed.
+     */
+    public EventBuilder(int initialCapacity) {
+        this.buffer = new byte[Math.max(initialCapacity, 16)];
+        reset();
+    }
+
+    /**
+     * Set a string property. A null value leaves the property out, as it would be for an event created from a map.
+     * @param name The name of the property.
+     * @param value The value of the property.
+     * @return This builder.
+     */
+    public EventBuilder putString(String name, String value) {
+        beginProperty(name);
+        if (value == null) {
+            endNullProperty();
+        } else {
+            writeString(value);
+        }
+        return this;
+    }
+
+    /**
+     * Set an integer property.
+     * @param name The name of the property.
+     * @param value The value of the property.
+     * @return This builder.
+     */
+    public EventBuilder putLong(String name, long value) {
+        beginProperty(name);
+        writeLong(value);
+        return this;
+    }
+
+    /**
+     * Set a decimal property.
+     * @param name The name of the property.
+     * @param value The value of the property, which must be a finite number.
+     * @return This builder.
+     * @throws IllegalArgumentException If the value is NaN or infinite.
+     */
+    public EventBuilder putDouble(String name, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException(value + " is not a valid double value as per JSON specification.");
+        }
+        beginProperty(name);
+        writeAscii(Double.toString(value));
+        return this;
+    }
+
+    /**
+     * Set a boolean property.
+     * @param name The name of the property.
+     * @param value The value of the property.
+     * @return This builder.
+     */
+    public EventBuilder putBoolean(String name, boolean value) {
+        beginProperty(name);
+        writeBytes(value ? TRUE : FALSE);
+        return this;
+    }
+
+    /**
+     * Set a date property, such as the reserved "timestamp" property.
+     * A null value leaves the property out, as it would be for an event created from a map.
+     * @param name The name of the property.
+     * @param value The value of the property.
+     * @return This builder.
+     */
+    public EventBuilder putDate(String name, Date value) {
+        beginProperty(name);
+        if (value == null) {
+            endNullProperty();
+        } else {
+            writeDate(value.getTime());
+        }
+        return this;
+    }
+
+    /**
+     * Start a nested object property. The properties set until {@link #endObject()} is called belong to the object.
+     * @param name The name of the property.
+     * @return This builder.
+     */
+    public EventBuilder beginObject(String name) {
+        beginProperty(name);
+        writeByte('{');
+        if (depth == hasProperties.length) {
+            hasProperties = Arrays.copyOf(hasProperties, depth * 2);
+        }
+        hasProperties[depth++] = false;
+        return this;
+    }
+
+    /**
+     * End the nested object started by the last call to {@link #beginObject(String)}.
+     * @return This builder.
+     * @throws IllegalStateException If there is no nested object to end.
+     */
+    public EventBuilder endObject() {
+        if (depth <= 1) {
+            throw new IllegalStateException("There is no nested object to end.");
+        }
+        writeByte('}');
+        depth--;
+        return this;
+    }
+
+    /**
+     * Create the event from the properties set, then reset the builder.
+     * If no "id" or "timestamp" property was set, a generated ID and the current date are used.
+     * @return The event.
+     * @throws InvalidEventException If the event has no properties or any property name is invalid.
+     * @throws IllegalStateException If a nested object has not been ended.
+     */
+    public Event build() throws InvalidEventException {
+        return build(TimeOrderedIdGenerator.getDefault());
+    }
+
+    /**
+     * Create the event from the properties set, generating its IDs with the given generator, then reset the builder.
+     * @param idGenerator The {@link EventIdGenerator} used for the event store ID and, if none was set, the "id" property.
+     * @return The event.
+     * @throws InvalidEventException If the event has no properties or any property name is invalid.
+     * @throws IllegalStateException If a nested object has not been ended.
+     */
+    public Event build(EventIdGenerator idGenerator) throws InvalidEventException {
+        if (depth != 1) {
+            throw new IllegalStateException("A nested object has not been ended.");
+        }
+
+        try {
+            if (nameCount == 0) {
+                throw new InvalidEventException("The event cannot be sent. It contains no properties");
+            }
+            if (invalidProperties != null) {
+                throw InvalidEventException.create(invalidProperties);
+            }
+
+            String eventStoreId = idGenerator.generateId();
+            if (!hasId) {
+                putString("id", idGenerator.generateId());
+            }
+            if (!hasTimestamp) {
+                beginProperty("timestamp");
+                writeDate(System.currentTimeMillis());
+            }
+            writeByte('}');
+
+            return new Event(Arrays.copyOf(buffer, length), eventStoreId);
+        } finally {
+            reset();
+        }
+    }
+
+    /**
+     * Discard the properties set so far.
+     * @return This builder.
+     */
+    public EventBuilder reset() {
+        length = 0;
+        writeByte('{');
+        depth = 1;
+        hasProperties[0] = false;
+        Arrays.fill(names, 0, nameCount, null);
+        nameCount = 0;
+        hasId = false;
+        hasTimestamp = false;
+        invalidProperties = null;
+        return this;
+    }
+
+    private void beginProperty(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("Property names cannot be null.");
+        }
+        if (depth == 1) {
+            addName(name);
+        }
+
+        propertyStart = length;
+        propertyStartHadProperties = hasProperties[depth - 1];
+        if (hasProperties[depth - 1]) {
+            writeByte(',');
+        }
+        hasProperties[depth - 1] = true;
+        writeString(name);
+        writeByte(':');
+    }
+
+    private void addName(String name) {
+        for (int i = 0; i < nameCount; i++) {
+            if (names[i].equals(name)) {
+                throw new IllegalArgumentException("The property '" + name + "' has already been set.");
+            }
+        }
+        if (nameCount == names.length) {
+            names = Arrays.copyOf(names, nameCount * 2);
+        }
+        names[nameCount++] = name;
+
+        if (name.equals("id")) {
+            hasId = true;
+        } else if (name.equals("timestamp")) {
+            hasTimestamp = true;
+        }
+
+        String error = Event.getPropertyNameError(name);
+        if (error != null) {
+            if (invalidProperties == null) {
+                invalidProperties = new HashMap<String, String>();
+            }
+            invalidProperties.put(name, error);
+        }
+    }
+
+    /**
+     * Remove the name of a null property, which is left out of the JSON, as Gson does.
+     */
+    private void endNullProperty() {
+        length = propertyStart;
+        hasProperties[depth - 1] = propertyStartHadProperties;
+    }
+
+    private void writeDate(long millis) {
+        if (UTCDateFormat.format(millis, dateBuffer)) {
+            ensureCapacity(UTCDateFormat.LENGTH + 2);
+            buffer[length++] = '"';
+            for (char c : dateBuffer) {
+                buffer[length++] = (byte) c;
+            }
+            buffer[length++] = '"';
+        } else {
+            writeString(UTCDateFormat.format(new Date(millis)));
+        }
+    }
+
+    private void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            writeAscii(Long.toString(value));
+            return;
+        }
+
+        ensureCapacity(20);
+        if (value < 0) {
+            buffer[length++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long remaining = value / 10; remaining > 0; remaining /= 10) {
+            digits++;
+        }
+        for (int i = length + digits - 1; i >= length; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        length += digits;
+    }
+
+    private void writeString(String value) {
+        int count = value.length();
+        // At most six bytes for each character, when escaped.
+        ensureCapacity(count * 6 + 2);
+        buffer[length++] = '"';
+        for (int i = 0; i < count; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                byte[] replacement = REPLACEMENT_CHARS[c];
+                if (replacement == null) {
+                    buffer[length++] = (byte) c;
+                } else {
+                    System.arraycopy(replacement, 0, buffer, length, replacement.length);
+                    length += replacement.length;
+                }
+            } else if (c == 0x2028 || c == 0x2029) {
+                byte[] replacement = unicodeEscape(c);
+                System.arraycopy(replacement, 0, buffer, length, replacement.length);
+                length += replacement.length;
+            } else if (c < 0x800) {
+                buffer[length++] = (byte) (0xc0 | (c >> 6));
+                buffer[length++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < count && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[length++] = (byte) (0xf0 | (codePoint >> 18));
+                buffer[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                buffer[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                buffer[length++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+                // An unpaired surrogate is replaced, as String.getBytes does.
+                buffer[length++] = '?';
+            } else {
+                buffer[length++] = (byte) (0xe0 | (c >> 12));
+                buffer[length++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buffer[length++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        buffer[length++] = '"';
+    }
+
+    private void writeAscii(String value) {
+        int count = value.length();
+        ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            buffer[length++] = (byte) value.charAt(i);
+        }
+    }
+
+    private void writeBytes(byte[] value) {
+        ensureCapacity(value.length);
+        System.arraycopy(value, 0, buffer, length, value.length);
+        length += value.length;
+    }
+
+    private void writeByte(char value) {
+        ensureCapacity(1);
+        buffer[length++] = (byte) value;
+    }
+
+    private void ensureCapacity(int additional) {
+        if (length + additional > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + additional));
+        }
+    }
+
+    private static byte[] unicodeEscape(int c) {
+        return new byte[] { '\\', 'u', HEX_DIGITS[(c >> 12) & 0xf], HEX_DIGITS[(c >> 8) & 0xf],
+                HEX_DIGITS[(c >> 4) & 0xf], HEX_DIGITS[c & 0xf] };
+    }
+}
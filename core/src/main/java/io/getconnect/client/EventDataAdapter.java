@@ -0,0 +1,200 @@
+package io.getconnect.client;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes event properties straight from and to a JSON stream.
+ * Strings, numbers, booleans, dates, maps and collections are handled directly; any other value is
+ * handed to Gson, so the JSON is the same as serializing the properties with Gson as a {@code Map<String, Object>}.
+ * As with Gson, null properties are left out, and numbers are read back as doubles and objects as maps.
+ */
+class EventDataAdapter extends TypeAdapter<Map<String, Object>> {
+    private final Gson gson;
+
+    /**
+     * @param gson The {@link Gson} instance used for values of any other type.
+     */
+    EventDataAdapter(Gson gson) {
+        this.gson = gson;
+    }
+
+    /**
+     * Serialize event properties to a JSON string.
+     * @param eventData The event properties.
+     * @return A string containing the event properties as JSON.
+     */
+    String serialize(Map<String, Object> eventData) {
+        StringWriter json = new StringWriter();
+        try {
+            JsonWriter writer = new JsonWriter(json);
+            writer.setLenient(true);
+            configure(writer);
+            write(writer, eventData);
+        } catch (IOException e) {
+            // StringWriter does not throw
+            throw new JsonIOException(e);
+        }
+        return json.toString();
+    }
+
+    /**
+     * Deserialize event properties from a JSON string.
+     * @param json The JSON containing the event properties.
+     * @return A {@link Map} of the event properties, or null if the JSON is empty.
+     */
+    Map<String, Object> deserialize(String json) {
+        try {
+            return deserialize(new StringReader(json));
+        } catch (MalformedJsonException e) {
+            throw new JsonSyntaxException(e);
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+    }
+
+    /**
+     * Deserialize event properties, or any other JSON object, from a reader.
+     * @param json The reader from which to read the JSON.
+     * @return A {@link Map} of the properties of the object, or null if the JSON is empty.
+     * @throws IOException If there is a problem reading or the JSON is malformed.
+     */
+    Map<String, Object> deserialize(Reader json) throws IOException {
+        JsonReader reader = new JsonReader(json);
+        reader.setLenient(true);
+        try {
+            reader.peek();
+        } catch (EOFException e) {
+            return null;
+        }
+
+        Map<String, Object> result = read(reader);
+        if (reader.peek() != JsonToken.END_DOCUMENT) {
+            throw new MalformedJsonException("JSON document was not fully consumed.");
+        }
+        return result;
+    }
+
+    /**
+     * Set the options of a writer that Gson would use when serializing event properties.
+     * @param writer The {@link JsonWriter} to configure.
+     */
+    static void configure(JsonWriter writer) {
+        writer.setHtmlSafe(true);
+        writer.setSerializeNulls(false);
+    }
+
+    @Override
+    public void write(JsonWriter out, Map<String, Object> eventData) throws IOException {
+        writeValue(out, eventData);
+    }
+
+    @Override
+    public Map<String, Object> read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        Map<String, Object> eventData = new LinkedHashMap<String, Object>();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (eventData.put(name, readValue(in)) != null) {
+                throw new JsonSyntaxException("duplicate key: " + name);
+            }
+        }
+        in.endObject();
+        return eventData;
+    }
+
+    private void writeValue(JsonWriter out, Object value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+        } else if (value instanceof String) {
+            out.value((String) value);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short ||
+                value instanceof Byte || value instanceof BigDecimal || value instanceof BigInteger) {
+            out.value((Number) value);
+        } else if (value instanceof Double || value instanceof Float) {
+            double doubleValue = ((Number) value).doubleValue();
+            if (Double.isNaN(doubleValue) || Double.isInfinite(doubleValue)) {
+                throw new IllegalArgumentException(value + " is not a valid double value as per JSON specification.");
+            }
+            out.value((Number) value);
+        } else if (value instanceof Boolean) {
+            out.value((Boolean) value);
+        } else if (value instanceof Character) {
+            out.value(value.toString());
+        } else if (value.getClass() == Date.class) {
+            out.value(UTCDateFormat.format((Date) value));
+        } else if (value instanceof Map) {
+            out.beginObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                out.name(String.valueOf(entry.getKey()));
+                writeValue(out, entry.getValue());
+            }
+            out.endObject();
+        } else if (value instanceof Collection) {
+            out.beginArray();
+            for (Object element : (Collection<?>) value) {
+                writeValue(out, element);
+            }
+            out.endArray();
+        } else {
+            gson.toJson(value, value.getClass(), out);
+        }
+    }
+
+    private Object readValue(JsonReader in) throws IOException {
+        switch (in.peek()) {
+            case BEGIN_OBJECT:
+                Map<String, Object> map = new LinkedHashMap<String, Object>();
+                in.beginObject();
+                while (in.hasNext()) {
+                    map.put(in.nextName(), readValue(in));
+                }
+                in.endObject();
+                return map;
+            case BEGIN_ARRAY:
+                List<Object> list = new ArrayList<Object>();
+                in.beginArray();
+                while (in.hasNext()) {
+                    list.add(readValue(in));
+                }
+                in.endArray();
+                return list;
+            case STRING:
+                return in.nextString();
+            case NUMBER:
+                return in.nextDouble();
+            case BOOLEAN:
+                return in.nextBoolean();
+            case NULL:
+                in.nextNull();
+                return null;
+            default:
+                throw new IllegalStateException();
+        }
+    }
+}
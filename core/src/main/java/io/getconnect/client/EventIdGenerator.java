@@ -0,0 +1,13 @@
+package io.getconnect.client;
+
+/**
+ * Generates the IDs of events: the "id" property of events that don't provide one, and the ID used to
+ * keep the event in the event store. Implementations must be safe to use from multiple threads.
+ */
+public interface EventIdGenerator {
+    /**
+     * Generate a new unique ID.
+     * @return The ID.
+     */
+    String generateId();
+}
@@ -9,6 +9,7 @@ public class EventPushResponse {
     private Boolean success;
     private String message;
     private Event event;
+    private boolean retryable;
 
     /**
      * Create a response to an event push.
@@ -19,6 +20,30 @@ public class EventPushResponse {
         this.event = event;
     }
 
+    /**
+     * Create a response to an event push.
+     * @param success Whether or not the event push was successful.
+     * @param message The error message, if applicable, for the event push.
+     * @param event The event that was pushed.
+     */
+    public EventPushResponse(boolean success, String message, Event event) {
+        this(success, message, event, false);
+    }
+
+    /**
+     * Create a response to an event push.
+     * @param success Whether or not the event push was successful.
+     * @param message The error message, if applicable, for the event push.
+     * @param event The event that was pushed.
+     * @param retryable Whether the push failed without Connect rejecting the event, so pushing it again may succeed.
+     */
+    public EventPushResponse(boolean success, String message, Event event, boolean retryable) {
+        this.success = success;
+        this.message = message;
+        this.event = event;
+        this.retryable = retryable;
+    }
+
     /**
      * Whether or not the event push was successful.
      * @return Whether or not the event push was successful.
@@ -27,6 +52,15 @@ public class EventPushResponse {
         return success;
     }
 
+    /**
+     * Whether the push failed without Connect rejecting the event, for example because the request for part of a
+     * batch failed, so pushing the event again may succeed. Events that Connect rejected are not retryable.
+     * @return Whether the event push can be retried.
+     */
+    public boolean isRetryable() {
+        return retryable;
+    }
+
     /**
      * The error message, if applicable, for the event push.
      * @return The error message, if applicable, for the event push.
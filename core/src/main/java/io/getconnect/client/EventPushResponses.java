@@ -0,0 +1,187 @@
+package io.getconnect.client;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The responses to the events of a single collection pushed in a batch, in the order the events were pushed.
+ * Whether each event was pushed is kept as a single bit and messages are only kept for the events that have one,
+ * usually the events that failed, so the responses to a large batch take little more memory than the events.
+ * An {@link EventPushResponse} is only created for each event as the responses are iterated.
+ */
+public class EventPushResponses implements Iterable<EventPushResponse> {
+    private final ArrayList<Event> events;
+    private final BitSet successful = new BitSet();
+    private BitSet retryable;
+    private HashMap<Integer, String> messages;
+
+    /**
+     * Create an empty set of responses.
+     */
+    public EventPushResponses() {
+        this(10);
+    }
+
+    /**
+     * Create an empty set of responses.
+     * @param capacity The number of responses expected.
+     */
+    public EventPushResponses(int capacity) {
+        this.events = new ArrayList<Event>(capacity);
+    }
+
+    /**
+     * Get the responses as {@link EventPushResponses}, copying them if they are not already.
+     * @param responses The responses to the events of a collection.
+     * @return The responses.
+     */
+    public static EventPushResponses of(Iterable<EventPushResponse> responses) {
+        if (responses instanceof EventPushResponses)
+            return (EventPushResponses) responses;
+
+        EventPushResponses copy = new EventPushResponses();
+        copy.addAll(responses);
+        return copy;
+    }
+
+    /**
+     * Add the response to an event.
+     * @param event The event that was pushed.
+     * @param success Whether or not the event push was successful.
+     * @param message The error message, if applicable, for the event push.
+     * @param retryable Whether the push failed without Connect rejecting the event, so pushing it again may succeed.
+     */
+    public void add(Event event, boolean success, String message, boolean retryable) {
+        int index = events.size();
+        events.add(event);
+        if (success) {
+            successful.set(index);
+        }
+        if (retryable) {
+            if (this.retryable == null) {
+                this.retryable = new BitSet();
+            }
+            this.retryable.set(index);
+        }
+        if (message != null) {
+            if (messages == null) {
+                messages = new HashMap<Integer, String>();
+            }
+            messages.put(index, message);
+        }
+    }
+
+    /**
+     * Add the response to an event.
+     * @param response The {@link EventPushResponse} to add.
+     */
+    public void add(EventPushResponse response) {
+        add(response.getEvent(), Boolean.TRUE.equals(response.isSuccessful()), response.getMessage(), response.isRetryable());
+    }
+
+    /**
+     * Add responses to the end of these responses.
+     * @param responses The responses to add.
+     */
+    public void addAll(Iterable<EventPushResponse> responses) {
+        if (!(responses instanceof EventPushResponses)) {
+            for (EventPushResponse response : responses) {
+                add(response);
+            }
+            return;
+        }
+
+        EventPushResponses other = (EventPushResponses) responses;
+        for (int i = 0; i < other.size(); i++) {
+            add(other.events.get(i), other.isSuccessful(i), other.getMessage(i), other.isRetryable(i));
+        }
+    }
+
+    /**
+     * Get the number of responses.
+     * @return The number of events pushed.
+     */
+    public int size() {
+        return events.size();
+    }
+
+    /**
+     * Get the number of events that were pushed successfully.
+     * @return The number of successful event pushes.
+     */
+    public int getSuccessCount() {
+        return successful.cardinality();
+    }
+
+    /**
+     * Get an event that was pushed.
+     * @param index The position of the event in the batch.
+     * @return The {@link Event} that was pushed.
+     */
+    public Event getEvent(int index) {
+        return events.get(index);
+    }
+
+    /**
+     * Whether or not the push of an event was successful.
+     * @param index The position of the event in the batch.
+     * @return Whether or not the event push was successful.
+     */
+    public boolean isSuccessful(int index) {
+        return successful.get(index);
+    }
+
+    /**
+     * Whether the push of an event failed without Connect rejecting the event, so pushing it again may succeed.
+     * @param index The position of the event in the batch.
+     * @return Whether the event push can be retried.
+     */
+    public boolean isRetryable(int index) {
+        return retryable != null && retryable.get(index);
+    }
+
+    /**
+     * The error message, if applicable, for the push of an event.
+     * @param index The position of the event in the batch.
+     * @return The error message, or null if there was none.
+     */
+    public String getMessage(int index) {
+        return messages == null ? null : messages.get(index);
+    }
+
+    /**
+     * Get the response to an event.
+     * @param index The position of the event in the batch.
+     * @return A new {@link EventPushResponse} for the event.
+     */
+    public EventPushResponse get(int index) {
+        return new EventPushResponse(isSuccessful(index), getMessage(index), getEvent(index), isRetryable(index));
+    }
+
+    @Override
+    public Iterator<EventPushResponse> iterator() {
+        return new Iterator<EventPushResponse>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < size();
+            }
+
+            @Override
+            public EventPushResponse next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                return get(next++);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
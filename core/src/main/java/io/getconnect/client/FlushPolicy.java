@@ -0,0 +1,47 @@
+package io.getconnect.client;
+
+/**
+ * Thresholds that control when queued events are automatically pushed to Connect.
+ * A threshold of zero (or less) is disabled.
+ */
+public class FlushPolicy {
+    private final int maxPendingEvents;
+    private final long maxPendingBytes;
+    private final long maxAgeMillis;
+
+    /**
+     * Creates a new flush policy.
+     * @param maxPendingEvents Number of queued events that will trigger a push.
+     * @param maxPendingBytes Approximate size in bytes of the queued events that will trigger a push.
+     * @param maxAgeMillis Maximum time in milliseconds an event may be queued before a push is triggered.
+     */
+    public FlushPolicy(int maxPendingEvents, long maxPendingBytes, long maxAgeMillis) {
+        this.maxPendingEvents = maxPendingEvents;
+        this.maxPendingBytes = maxPendingBytes;
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    /**
+     * Get the number of queued events that will trigger a push.
+     * @return The number of queued events that will trigger a push.
+     */
+    public int getMaxPendingEvents() {
+        return maxPendingEvents;
+    }
+
+    /**
+     * Get the approximate size in bytes of the queued events that will trigger a push.
+     * @return The approximate size in bytes of the queued events that will trigger a push.
+     */
+    public long getMaxPendingBytes() {
+        return maxPendingBytes;
+    }
+
+    /**
+     * Get the maximum time in milliseconds an event may be queued before a push is triggered.
+     * @return The maximum time in milliseconds an event may be queued before a push is triggered.
+     */
+    public long getMaxAgeMillis() {
+        return maxAgeMillis;
+    }
+}
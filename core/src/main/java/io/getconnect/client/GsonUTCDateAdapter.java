@@ -9,40 +9,65 @@ import com.google.gson.JsonParseException;
 import com.google.gson.JsonPrimitive;
 import com.google.gson.JsonSerializationContext;
 import com.google.gson.JsonSerializer;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
-import java.text.DateFormat;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.Locale;
-import java.util.TimeZone;
 
 public class GsonUTCDateAdapter implements JsonSerializer<Date>, JsonDeserializer<Date> {
-    private final DateFormat dateFormat;
 
     public GsonUTCDateAdapter() {
-        dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
-        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
     }
 
     @Override
-    public synchronized JsonElement serialize(Date date, Type type,
-                                                        JsonSerializationContext jsonSerializationContext) {
-        return new JsonPrimitive(dateFormat.format(date));
+    public JsonElement serialize(Date date, Type type,
+                                 JsonSerializationContext jsonSerializationContext) {
+        return new JsonPrimitive(UTCDateFormat.format(date));
     }
 
     @Override
-    public synchronized Date deserialize(JsonElement jsonElement, Type type,
-                                                   JsonDeserializationContext jsonDeserializationContext) {
+    public Date deserialize(JsonElement jsonElement, Type type,
+                            JsonDeserializationContext jsonDeserializationContext) {
         try {
-            return dateFormat.parse(jsonElement.getAsString());
+            return UTCDateFormat.parse(jsonElement.getAsString());
         } catch (ParseException e) {
             throw new JsonParseException(e);
         }
     }
 
     public static Gson createSerializer() {
-        return new GsonBuilder().registerTypeAdapter(Date.class, new GsonUTCDateAdapter()).create();
+        return new GsonBuilder().registerTypeAdapter(Date.class, new StreamingAdapter()).create();
+    }
+
+    /**
+     * Reads and writes dates straight from the JSON stream, without building a tree for each date.
+     */
+    static class StreamingAdapter extends TypeAdapter<Date> {
+        @Override
+        public void write(JsonWriter out, Date date) throws IOException {
+            if (date == null) {
+                out.nullValue();
+                return;
+            }
+            out.value(UTCDateFormat.format(date));
+        }
+
+        @Override
+        public Date read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            try {
+                return UTCDateFormat.parse(in.nextString());
+            } catch (ParseException e) {
+                throw new JsonParseException(e);
+            }
+        }
     }
 }
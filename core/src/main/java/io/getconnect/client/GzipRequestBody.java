@@ -0,0 +1,39 @@
+package io.getconnect.client;
+
+import com.squareup.okhttp.MediaType;
+import com.squareup.okhttp.RequestBody;
+
+import java.io.IOException;
+
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+
+/**
+ * Request body that gzips another request body as it is written to the request.
+ */
+class GzipRequestBody extends RequestBody {
+    private final RequestBody body;
+
+    GzipRequestBody(RequestBody body) {
+        this.body = body;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return body.contentType();
+    }
+
+    @Override
+    public long contentLength() {
+        // Unknown until compressed, so the body is sent chunked.
+        return -1;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        BufferedSink gzipSink = Okio.buffer(new GzipSink(sink));
+        body.writeTo(gzipSink);
+        gzipSink.close();
+    }
+}
@@ -0,0 +1,75 @@
+package io.getconnect.client;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import io.getconnect.client.metrics.Counter;
+import io.getconnect.client.metrics.Histogram;
+import io.getconnect.client.metrics.MetricNames;
+import io.getconnect.client.metrics.MetricsRegistry;
+import io.getconnect.client.metrics.NoOpMetricsRegistry;
+
+/**
+ * The metrics recorded by the client, looked up once from a {@link MetricsRegistry} so that recording is only a call
+ * on the metric itself.
+ */
+final class Instruments {
+    static final Instruments NONE = new Instruments(NoOpMetricsRegistry.INSTANCE);
+
+    private static final int MAX_STATUS_CODE = 600;
+
+    final MetricsRegistry registry;
+    final Counter eventsAdded;
+    final Counter eventsPushed;
+    final Counter eventsFailed;
+    final Counter eventsDeadLettered;
+    final Histogram batchEvents;
+    final Counter requests;
+    final Histogram requestDuration;
+    final Counter requestErrors;
+    final Counter requestRetries;
+    final Histogram pushPendingDuration;
+    final Histogram storeAddDuration;
+    final Histogram storeReadDuration;
+    final Histogram storeAcknowledgeDuration;
+    private final AtomicReferenceArray<Counter> responses = new AtomicReferenceArray<Counter>(MAX_STATUS_CODE);
+
+    Instruments(MetricsRegistry registry) {
+        this.registry = registry;
+        this.eventsAdded = registry.counter(MetricNames.EVENTS_ADDED);
+        this.eventsPushed = registry.counter(MetricNames.EVENTS_PUSHED);
+        this.eventsFailed = registry.counter(MetricNames.EVENTS_FAILED);
+        this.eventsDeadLettered = registry.counter(MetricNames.EVENTS_DEAD_LETTERED);
+        this.batchEvents = registry.histogram(MetricNames.BATCH_EVENTS);
+        this.requests = registry.counter(MetricNames.REQUESTS);
+        this.requestDuration = registry.histogram(MetricNames.REQUEST_DURATION);
+        this.requestErrors = registry.counter(MetricNames.REQUEST_ERRORS);
+        this.requestRetries = registry.counter(MetricNames.REQUEST_RETRIES);
+        this.pushPendingDuration = registry.histogram(MetricNames.PUSH_PENDING_DURATION);
+        this.storeAddDuration = registry.histogram(MetricNames.STORE_ADD_DURATION);
+        this.storeReadDuration = registry.histogram(MetricNames.STORE_READ_DURATION);
+        this.storeAcknowledgeDuration = registry.histogram(MetricNames.STORE_ACKNOWLEDGE_DURATION);
+    }
+
+    static Instruments create(MetricsRegistry registry) {
+        return registry == null ? NONE : new Instruments(registry);
+    }
+
+    /**
+     * Count a response with the given HTTP status code.
+     * @param code The HTTP status code of the response.
+     */
+    void recordResponse(int code) {
+        if (code < 0 || code >= MAX_STATUS_CODE) {
+            registry.counter(MetricNames.RESPONSES_PREFIX + code).increment(1);
+            return;
+        }
+
+        Counter counter = responses.get(code);
+        if (counter == null) {
+            // Looked up the first time each status code is seen; the registry returns the same counter if two threads race.
+            counter = registry.counter(MetricNames.RESPONSES_PREFIX + code);
+            responses.set(code, counter);
+        }
+        counter.increment(1);
+    }
+}
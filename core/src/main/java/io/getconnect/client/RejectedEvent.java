@@ -0,0 +1,117 @@
+package io.getconnect.client;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+
+/**
+ * An event that Connect rejected, for example because one of its properties was invalid, along with the message
+ * Connect gave for rejecting it. Rejected events are kept in the dead-letter store of the {@link ConnectClient}.
+ */
+public class RejectedEvent {
+    private static final byte[] MESSAGE_PREFIX = { '{', '"', 'm', 'e', 's', 's', 'a', 'g', 'e', '"', ':' };
+    private static final byte[] EVENT_PREFIX = { ',', '"', 'e', 'v', 'e', 'n', 't', '"', ':' };
+
+    private final Event event;
+    private final String message;
+
+    /**
+     * Create a rejected event.
+     * @param event The event that was rejected.
+     * @param message The message Connect gave for rejecting the event, if any.
+     */
+    public RejectedEvent(Event event, String message) {
+        this.event = event;
+        this.message = message;
+    }
+
+    /**
+     * Get the event that was rejected.
+     * @return The {@link Event}, with the same event store ID it had when it was pushed.
+     */
+    public Event getEvent() {
+        return event;
+    }
+
+    /**
+     * Get the message Connect gave for rejecting the event.
+     * @return The message, or null if there was none.
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Get the event kept in the dead-letter store, which holds the message followed by the JSON of the rejected
+     * event exactly as it was pushed, under the same event store ID.
+     * @return The {@link Event} to add to the dead-letter store.
+     * @throws IOException If there is a problem writing the message.
+     */
+    Event toStoredEvent() throws IOException {
+        byte[] messageJSON = message == null ? new byte[] { 'n', 'u', 'l', 'l' } : Event.toJSONString(message);
+        byte[] eventJSON = event.getEventJSONBytes();
+
+        byte[] json = new byte[MESSAGE_PREFIX.length + messageJSON.length + EVENT_PREFIX.length + eventJSON.length + 1];
+        int position = copy(MESSAGE_PREFIX, json, 0);
+        position = copy(messageJSON, json, position);
+        position = copy(EVENT_PREFIX, json, position);
+        position = copy(eventJSON, json, position);
+        json[position] = '}';
+        return new Event(json, event.getEventStoreId());
+    }
+
+    /**
+     * Get a rejected event from the event kept in the dead-letter store.
+     * Events that were added to the dead-letter store some other way are returned as they are, with no message.
+     * @param stored The {@link Event} read from the dead-letter store.
+     * @return The rejected event.
+     */
+    static RejectedEvent fromStoredEvent(Event stored) {
+        byte[] json = stored.getEventJSONBytes();
+        if (!startsWith(json, MESSAGE_PREFIX, 0))
+            return new RejectedEvent(stored, null);
+
+        try {
+            JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(json), "UTF-8"));
+            reader.beginObject();
+            reader.nextName();
+            String message = null;
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+            } else {
+                message = reader.nextString();
+            }
+
+            // The message is written the same way every time, so the event starts right after it.
+            int messageLength = message == null ? 4 : Event.toJSONString(message).length;
+            int eventStart = MESSAGE_PREFIX.length + messageLength + EVENT_PREFIX.length;
+            if (json.length <= eventStart || !startsWith(json, EVENT_PREFIX, eventStart - EVENT_PREFIX.length))
+                return new RejectedEvent(stored, null);
+
+            Event event = Event.fromEventStore(Arrays.copyOfRange(json, eventStart, json.length - 1), stored.getEventStoreId());
+            return new RejectedEvent(event, message);
+        } catch (Exception e) {
+            return new RejectedEvent(stored, null);
+        }
+    }
+
+    private static int copy(byte[] source, byte[] destination, int position) {
+        System.arraycopy(source, 0, destination, position, source.length);
+        return position + source.length;
+    }
+
+    private static boolean startsWith(byte[] json, byte[] prefix, int offset) {
+        if (offset < 0 || json.length < offset + prefix.length)
+            return false;
+
+        for (int i = 0; i < prefix.length; i++) {
+            if (json[offset + i] != prefix[i])
+                return false;
+        }
+        return true;
+    }
+}
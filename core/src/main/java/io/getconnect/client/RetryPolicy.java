@@ -0,0 +1,63 @@
+package io.getconnect.client;
+
+import java.util.Random;
+
+/**
+ * Determines how many times, and after what delay, a push that failed with a network error
+ * or a server error (5xx) is retried. Other failures, such as invalid events, are never retried.
+ * Delays grow exponentially with each attempt and are randomised ("full jitter") so that
+ * clients retrying after the same outage do not retry in lockstep.
+ */
+public class RetryPolicy {
+    /**
+     * A policy that never retries.
+     */
+    public static final RetryPolicy NONE = new RetryPolicy(0, 0, 0);
+
+    private final int maxRetries;
+    private final long initialDelayMillis;
+    private final long maxDelayMillis;
+    private final Random random = new Random();
+
+    /**
+     * Creates a new retry policy.
+     * @param maxRetries Maximum number of times a request is retried.
+     * @param initialDelayMillis Upper bound in milliseconds of the delay before the first retry. It doubles for every retry after that.
+     * @param maxDelayMillis Maximum delay in milliseconds before a retry.
+     */
+    public RetryPolicy(int maxRetries, long initialDelayMillis, long maxDelayMillis) {
+        this.maxRetries = maxRetries;
+        this.initialDelayMillis = initialDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    /**
+     * Get the maximum number of times a request is retried.
+     * @return The maximum number of times a request is retried.
+     */
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * Get the maximum delay before a retry. A server asking for a longer delay with a Retry-After header
+     * is not retried.
+     * @return The maximum delay in milliseconds.
+     */
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    /**
+     * Get the delay before a retry.
+     * @param retry The number of the retry, starting at 0 for the first retry.
+     * @return A random delay in milliseconds between 0 and the exponential backoff for the retry.
+     */
+    public long getDelayMillis(int retry) {
+        long backoff = initialDelayMillis << Math.min(retry, 30);
+        if (backoff <= 0 || backoff > maxDelayMillis) {
+            backoff = maxDelayMillis;
+        }
+        return backoff <= 0 ? 0 : (long) (random.nextDouble() * backoff);
+    }
+}
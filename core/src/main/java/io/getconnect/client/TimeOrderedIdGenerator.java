@@ -0,0 +1,90 @@
+package io.getconnect.client;
+
+import java.security.SecureRandom;
+import java.util.Random;
+
+/**
+ * Generates time-ordered UUIDs in the layout of UUID version 7: a 48 bit millisecond timestamp,
+ * a 12 bit sequence and 62 random bits.
+ * Each thread has its own random generator, seeded once from a {@link SecureRandom}, so generating an ID
+ * never takes a lock. IDs from the same thread are strictly increasing, and IDs from different threads
+ * are ordered by the millisecond in which they were generated.
+ */
+public class TimeOrderedIdGenerator implements EventIdGenerator {
+    private static final SecureRandom seedGenerator = new SecureRandom();
+    private static final TimeOrderedIdGenerator defaultGenerator = new TimeOrderedIdGenerator();
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int MAX_SEQUENCE = 0xfff;
+
+    private final ThreadLocal<ThreadState> state = new ThreadLocal<ThreadState>() {
+        @Override
+        protected ThreadState initialValue() {
+            long seed;
+            synchronized (seedGenerator) {
+                seed = seedGenerator.nextLong();
+            }
+            return new ThreadState(new Random(seed));
+        }
+    };
+
+    /**
+     * Gets the generator used by events unless another is given.
+     * @return The default ID generator.
+     */
+    public static TimeOrderedIdGenerator getDefault() {
+        return defaultGenerator;
+    }
+
+    @Override
+    public String generateId() {
+        ThreadState thread = state.get();
+
+        long millis = System.currentTimeMillis();
+        if (millis > thread.lastMillis) {
+            thread.lastMillis = millis;
+            // Start in the lower half of the sequence, leaving room for the IDs that follow in the same millisecond.
+            thread.sequence = thread.random.nextInt(MAX_SEQUENCE / 2);
+        } else if (thread.sequence < MAX_SEQUENCE) {
+            thread.sequence++;
+        } else {
+            // The sequence is exhausted, or the clock went backwards: borrow the next millisecond.
+            thread.lastMillis++;
+            thread.sequence = 0;
+        }
+
+        long mostSignificantBits = (thread.lastMillis << 16) | 0x7000 | thread.sequence;
+        long leastSignificantBits = (thread.random.nextLong() & 0x3fffffffffffffffL) | 0x8000000000000000L;
+        return format(mostSignificantBits, leastSignificantBits);
+    }
+
+    private static String format(long mostSignificantBits, long leastSignificantBits) {
+        char[] id = new char[36];
+        putHex(id, 0, mostSignificantBits >>> 32, 8);
+        id[8] = '-';
+        putHex(id, 9, mostSignificantBits >>> 16, 4);
+        id[13] = '-';
+        putHex(id, 14, mostSignificantBits, 4);
+        id[18] = '-';
+        putHex(id, 19, leastSignificantBits >>> 48, 4);
+        id[23] = '-';
+        putHex(id, 24, leastSignificantBits, 12);
+        return new String(id);
+    }
+
+    private static void putHex(char[] buffer, int offset, long value, int digits) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            buffer[i] = HEX[(int) (value & 0xf)];
+            value >>>= 4;
+        }
+    }
+
+    private static class ThreadState {
+        final Random random;
+        long lastMillis = 0;
+        int sequence = 0;
+
+        ThreadState(Random random) {
+            this.random = random;
+        }
+    }
+}
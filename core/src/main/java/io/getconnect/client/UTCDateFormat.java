@@ -0,0 +1,181 @@
+package io.getconnect.client;
+
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Formats and parses dates as ISO-8601 UTC strings ("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'") without locking.
+ * Dates between 1583 and 9999 are converted with integer arithmetic straight into a character buffer.
+ * Anything else, such as dates before the Gregorian calendar or strings that are not in exactly
+ * that format, goes through a per-thread {@link SimpleDateFormat} so the results are always the same
+ * as formatting or (leniently) parsing with {@link SimpleDateFormat}.
+ */
+final class UTCDateFormat {
+    static final String PATTERN = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'";
+    static final int LENGTH = 24;
+
+    private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000;
+    private static final long MIN_FAST_MILLIS = daysFromCivil(1583, 1, 1) * MILLIS_PER_DAY;
+    private static final long MAX_FAST_MILLIS = daysFromCivil(10000, 1, 1) * MILLIS_PER_DAY;
+
+    private static final ThreadLocal<DateFormat> fallbackFormat = new ThreadLocal<DateFormat>() {
+        @Override
+        protected DateFormat initialValue() {
+            DateFormat format = new SimpleDateFormat(PATTERN, Locale.US);
+            format.setTimeZone(TimeZone.getTimeZone("UTC"));
+            return format;
+        }
+    };
+
+    private UTCDateFormat() {
+    }
+
+    /**
+     * Formats a date as an ISO-8601 UTC string.
+     * @param date The date to format.
+     * @return The formatted date.
+     */
+    static String format(Date date) {
+        long millis = date.getTime();
+        if (millis < MIN_FAST_MILLIS || millis >= MAX_FAST_MILLIS)
+            return fallbackFormat.get().format(date);
+
+        char[] buffer = new char[LENGTH];
+        formatFast(millis, buffer);
+        return new String(buffer);
+    }
+
+    /**
+     * Formats a date as an ISO-8601 UTC string into a buffer, without allocating.
+     * @param millis The milliseconds since the epoch of the date to format.
+     * @param buffer The buffer of at least {@link #LENGTH} characters to which to write the date.
+     * @return Whether the date was formatted, false if it must be formatted with {@link #format(Date)}.
+     */
+    static boolean format(long millis, char[] buffer) {
+        if (millis < MIN_FAST_MILLIS || millis >= MAX_FAST_MILLIS)
+            return false;
+
+        formatFast(millis, buffer);
+        return true;
+    }
+
+    /**
+     * Parses an ISO-8601 UTC string.
+     * @param value The string to parse.
+     * @return The parsed date.
+     * @throws ParseException If the string is not a valid date.
+     */
+    static Date parse(String value) throws ParseException {
+        if (value.length() == LENGTH) {
+            long millis = parseMillis(value);
+            if (millis != Long.MIN_VALUE)
+                return new Date(millis);
+        }
+        return fallbackFormat.get().parse(value);
+    }
+
+    private static void formatFast(long millis, char[] buffer) {
+        long days = millis / MILLIS_PER_DAY;
+        int millisOfDay = (int) (millis % MILLIS_PER_DAY);
+        if (millisOfDay < 0) {
+            days--;
+            millisOfDay += MILLIS_PER_DAY;
+        }
+
+        // Howard Hinnant's civil_from_days, on 400 year eras starting on March 1st.
+        long z = days + 719468;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        int dayOfEra = (int) (z - era * 146097);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        int year = (int) (yearOfEra + era * 400) + (month <= 2 ? 1 : 0);
+
+        putDigits(buffer, 0, year, 4);
+        buffer[4] = '-';
+        putDigits(buffer, 5, month, 2);
+        buffer[7] = '-';
+        putDigits(buffer, 8, day, 2);
+        buffer[10] = 'T';
+        putDigits(buffer, 11, millisOfDay / 3600000, 2);
+        buffer[13] = ':';
+        putDigits(buffer, 14, millisOfDay / 60000 % 60, 2);
+        buffer[16] = ':';
+        putDigits(buffer, 17, millisOfDay / 1000 % 60, 2);
+        buffer[19] = '.';
+        putDigits(buffer, 20, millisOfDay % 1000, 3);
+        buffer[23] = 'Z';
+    }
+
+    /**
+     * Parses a string in exactly the ISO-8601 UTC format.
+     * @return The milliseconds since the epoch, or Long.MIN_VALUE if the string must be parsed by the fallback format.
+     */
+    private static long parseMillis(String value) {
+        if (value.charAt(4) != '-' || value.charAt(7) != '-' || value.charAt(10) != 'T' || value.charAt(13) != ':' ||
+                value.charAt(16) != ':' || value.charAt(19) != '.' || value.charAt(23) != 'Z')
+            return Long.MIN_VALUE;
+
+        int year = getDigits(value, 0, 4);
+        int month = getDigits(value, 5, 2);
+        int day = getDigits(value, 8, 2);
+        int hour = getDigits(value, 11, 2);
+        int minute = getDigits(value, 14, 2);
+        int second = getDigits(value, 17, 2);
+        int millis = getDigits(value, 20, 3);
+
+        // Out of range fields are left to the fallback format, which rolls them over leniently.
+        if (year < 1583 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month) ||
+                hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59 || millis < 0)
+            return Long.MIN_VALUE;
+
+        return daysFromCivil(year, month, day) * MILLIS_PER_DAY + hour * 3600000L + minute * 60000L + second * 1000L + millis;
+    }
+
+    private static long daysFromCivil(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = (y >= 0 ? y : y - 399) / 400;
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static void putDigits(char[] buffer, int offset, int value, int length) {
+        for (int i = offset + length - 1; i >= offset; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    private static int getDigits(String value, int offset, int length) {
+        int result = 0;
+        for (int i = offset; i < offset + length; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9')
+                return -1;
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+}
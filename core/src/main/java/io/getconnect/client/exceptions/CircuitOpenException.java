@@ -0,0 +1,23 @@
+package io.getconnect.client.exceptions;
+
+/**
+ * Represents an exception when a push is not sent because the Connect API has been failing
+ * and the circuit breaker is open.
+ */
+public class CircuitOpenException extends ConnectException {
+    public CircuitOpenException() {
+        super();
+    }
+
+    public CircuitOpenException(Throwable cause) {
+        super(cause);
+    }
+
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+
+    public CircuitOpenException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
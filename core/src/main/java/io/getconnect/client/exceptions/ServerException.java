@@ -4,19 +4,38 @@ package io.getconnect.client.exceptions;
  * Represents a general server exception.
  */
 public class ServerException extends ConnectException {
+    private final int statusCode;
+
     public ServerException() {
         super();
+        this.statusCode = 0;
     }
 
     public ServerException(Throwable cause) {
         super(cause);
+        this.statusCode = 0;
     }
 
     public ServerException(String message) {
         super(message);
+        this.statusCode = 0;
+    }
+
+    public ServerException(String message, int statusCode) {
+        super(message);
+        this.statusCode = statusCode;
     }
 
     public ServerException(String message, Throwable cause) {
         super(message, cause);
+        this.statusCode = 0;
+    }
+
+    /**
+     * Gets the HTTP status code of the response that caused the exception.
+     * @return The status code, or 0 if it is not known.
+     */
+    public int getStatusCode() {
+        return statusCode;
     }
 }
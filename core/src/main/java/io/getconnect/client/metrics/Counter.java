@@ -0,0 +1,12 @@
+package io.getconnect.client.metrics;
+
+/**
+ * A count of things that have happened, such as events added or requests sent.
+ */
+public interface Counter {
+    /**
+     * Add to the count. Must be thread-safe and cheap, as it is called on the paths that add and push events.
+     * @param delta The amount to add.
+     */
+    void increment(long delta);
+}
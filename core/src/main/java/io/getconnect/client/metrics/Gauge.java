@@ -0,0 +1,12 @@
+package io.getconnect.client.metrics;
+
+/**
+ * A value that is read when it is reported, such as the number of pending events.
+ */
+public interface Gauge {
+    /**
+     * Get the current value.
+     * @return The current value.
+     */
+    long getValue();
+}
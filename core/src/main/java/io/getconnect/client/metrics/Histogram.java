@@ -0,0 +1,12 @@
+package io.getconnect.client.metrics;
+
+/**
+ * A distribution of values, such as request latencies in nanoseconds or the number of events in each batch.
+ */
+public interface Histogram {
+    /**
+     * Record a value. Must be thread-safe and cheap, as it is called on the paths that add and push events.
+     * @param value The value to record.
+     */
+    void record(long value);
+}
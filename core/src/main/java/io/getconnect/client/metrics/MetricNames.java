@@ -0,0 +1,87 @@
+package io.getconnect.client.metrics;
+
+/**
+ * Names of the metrics recorded by {@link io.getconnect.client.ConnectClient} and {@link io.getconnect.client.ConnectAPI}.
+ * Durations are in nanoseconds.
+ */
+public final class MetricNames {
+    /**
+     * Counter of events added to the client to be pushed later.
+     */
+    public static final String EVENTS_ADDED = "connect.events.added";
+
+    /**
+     * Gauge of the events pending in the event store. Read from the store if it is a
+     * {@link io.getconnect.client.store.CountingEventStore}, so it includes events persisted before the client started;
+     * otherwise tracked by the client as events are added and acknowledged, which is approximate if the store discards events.
+     */
+    public static final String EVENTS_PENDING = "connect.events.pending";
+
+    /**
+     * Counter of events the Connect API accepted in batch pushes.
+     */
+    public static final String EVENTS_PUSHED = "connect.events.pushed";
+
+    /**
+     * Counter of events in batch pushes that the Connect API did not accept, including events in chunks of a batch that failed.
+     */
+    public static final String EVENTS_FAILED = "connect.events.failed";
+
+    /**
+     * Counter of events that the Connect API rejected and were moved to the dead-letter store.
+     */
+    public static final String EVENTS_DEAD_LETTERED = "connect.events.deadLettered";
+
+    /**
+     * Histogram of the number of events in each batch request.
+     */
+    public static final String BATCH_EVENTS = "connect.batch.events";
+
+    /**
+     * Counter of HTTP requests sent, including retries.
+     */
+    public static final String REQUESTS = "connect.requests";
+
+    /**
+     * Histogram of the time from sending each HTTP request until its response or failure.
+     */
+    public static final String REQUEST_DURATION = "connect.request.duration";
+
+    /**
+     * Counter of HTTP requests that failed without a response, for example because the network was unavailable.
+     */
+    public static final String REQUEST_ERRORS = "connect.request.errors";
+
+    /**
+     * Counter of HTTP requests that were retried.
+     */
+    public static final String REQUEST_RETRIES = "connect.request.retries";
+
+    /**
+     * Prefix of the counters of responses by HTTP status code, for example "connect.responses.503".
+     */
+    public static final String RESPONSES_PREFIX = "connect.responses.";
+
+    /**
+     * Histogram of the time taken by each call to push the pending events.
+     */
+    public static final String PUSH_PENDING_DURATION = "connect.pushPending.duration";
+
+    /**
+     * Histogram of the time the event store takes to add each event.
+     */
+    public static final String STORE_ADD_DURATION = "connect.store.add.duration";
+
+    /**
+     * Histogram of the time the event store takes to lease each batch of pending events.
+     */
+    public static final String STORE_READ_DURATION = "connect.store.read.duration";
+
+    /**
+     * Histogram of the time the event store takes to acknowledge the events of a collection pushed in a batch.
+     */
+    public static final String STORE_ACKNOWLEDGE_DURATION = "connect.store.acknowledge.duration";
+
+    private MetricNames() {
+    }
+}
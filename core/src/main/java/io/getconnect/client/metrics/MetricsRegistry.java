@@ -0,0 +1,30 @@
+package io.getconnect.client.metrics;
+
+/**
+ * Creates the metrics recorded by the client, and is the hook for bridging them to another metrics system.
+ * Each metric is looked up once, when the registry is set on the client, so lookups need not be fast;
+ * recording to the returned metrics must be.
+ * See {@link MetricNames} for the metrics that are recorded.
+ */
+public interface MetricsRegistry {
+    /**
+     * Get the counter with the given name, creating it if needed.
+     * @param name The name of the counter.
+     * @return The counter.
+     */
+    Counter counter(String name);
+
+    /**
+     * Get the histogram with the given name, creating it if needed.
+     * @param name The name of the histogram.
+     * @return The histogram.
+     */
+    Histogram histogram(String name);
+
+    /**
+     * Register a gauge, replacing any gauge already registered with the same name.
+     * @param name The name of the gauge.
+     * @param gauge The gauge.
+     */
+    void gauge(String name, Gauge gauge);
+}
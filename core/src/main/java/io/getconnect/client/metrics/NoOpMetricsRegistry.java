@@ -0,0 +1,37 @@
+package io.getconnect.client.metrics;
+
+/**
+ * Registry whose metrics discard everything recorded. This is the default, so metrics cost nothing until a registry is set.
+ */
+public final class NoOpMetricsRegistry implements MetricsRegistry {
+    public static final NoOpMetricsRegistry INSTANCE = new NoOpMetricsRegistry();
+
+    private static final Counter counter = new Counter() {
+        @Override
+        public void increment(long delta) {
+        }
+    };
+
+    private static final Histogram histogram = new Histogram() {
+        @Override
+        public void record(long value) {
+        }
+    };
+
+    private NoOpMetricsRegistry() {
+    }
+
+    @Override
+    public Counter counter(String name) {
+        return counter;
+    }
+
+    @Override
+    public Histogram histogram(String name) {
+        return histogram;
+    }
+
+    @Override
+    public void gauge(String name, Gauge gauge) {
+    }
+}
@@ -0,0 +1,201 @@
+package io.getconnect.client.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Registry that keeps metrics in memory, for applications without a metrics system of their own.
+ * Counters and histograms are recorded with atomic operations only. Histograms keep eight buckets for
+ * each power of two, so percentiles are accurate to within 12.5%.
+ */
+public class SimpleMetricsRegistry implements MetricsRegistry {
+    private final ConcurrentMap<String, SimpleCounter> counters = new ConcurrentHashMap<String, SimpleCounter>();
+    private final ConcurrentMap<String, SimpleHistogram> histograms = new ConcurrentHashMap<String, SimpleHistogram>();
+    private final ConcurrentMap<String, Gauge> gauges = new ConcurrentHashMap<String, Gauge>();
+
+    @Override
+    public SimpleCounter counter(String name) {
+        SimpleCounter counter = counters.get(name);
+        if (counter == null) {
+            SimpleCounter created = new SimpleCounter();
+            counter = counters.putIfAbsent(name, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        return counter;
+    }
+
+    @Override
+    public SimpleHistogram histogram(String name) {
+        SimpleHistogram histogram = histograms.get(name);
+        if (histogram == null) {
+            SimpleHistogram created = new SimpleHistogram();
+            histogram = histograms.putIfAbsent(name, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        return histogram;
+    }
+
+    @Override
+    public void gauge(String name, Gauge gauge) {
+        gauges.put(name, gauge);
+    }
+
+    /**
+     * Get the current value of a counter.
+     * @param name The name of the counter.
+     * @return The count, or 0 if there is no such counter.
+     */
+    public long getCount(String name) {
+        SimpleCounter counter = counters.get(name);
+        return counter == null ? 0 : counter.getCount();
+    }
+
+    /**
+     * Get the current value of a gauge.
+     * @param name The name of the gauge.
+     * @return The value, or 0 if there is no such gauge.
+     */
+    public long getGaugeValue(String name) {
+        Gauge gauge = gauges.get(name);
+        return gauge == null ? 0 : gauge.getValue();
+    }
+
+    /**
+     * Get the current values of every counter and gauge, and the count of every histogram, sorted by name.
+     * @return A {@link Map} of metric name to value.
+     */
+    public Map<String, Long> snapshot() {
+        TreeMap<String, Long> values = new TreeMap<String, Long>();
+        for (Map.Entry<String, SimpleCounter> counter : counters.entrySet()) {
+            values.put(counter.getKey(), counter.getValue().getCount());
+        }
+        for (Map.Entry<String, Gauge> gauge : gauges.entrySet()) {
+            values.put(gauge.getKey(), gauge.getValue().getValue());
+        }
+        for (Map.Entry<String, SimpleHistogram> histogram : histograms.entrySet()) {
+            values.put(histogram.getKey(), histogram.getValue().getCount());
+        }
+        return Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * A counter kept in memory.
+     */
+    public static class SimpleCounter implements Counter {
+        private final AtomicLong count = new AtomicLong();
+
+        @Override
+        public void increment(long delta) {
+            count.addAndGet(delta);
+        }
+
+        /**
+         * Get the current count.
+         * @return The count.
+         */
+        public long getCount() {
+            return count.get();
+        }
+    }
+
+    /**
+     * A histogram of non-negative values kept in memory. Negative values are recorded as 0.
+     */
+    public static class SimpleHistogram implements Histogram {
+        private static final int SUB_BUCKET_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+        private final AtomicLongArray buckets = new AtomicLongArray((64 - SUB_BUCKET_BITS) * SUB_BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        @Override
+        public void record(long value) {
+            if (value < 0) {
+                value = 0;
+            }
+            buckets.incrementAndGet(getBucket(value));
+            count.incrementAndGet();
+            sum.addAndGet(value);
+
+            long currentMax;
+            while (value > (currentMax = max.get()) && !max.compareAndSet(currentMax, value)) {
+                // another thread recorded a value at the same time
+            }
+        }
+
+        /**
+         * Get the number of values recorded.
+         * @return The number of values.
+         */
+        public long getCount() {
+            return count.get();
+        }
+
+        /**
+         * Get the mean of the values recorded.
+         * @return The mean, or 0 if no values have been recorded.
+         */
+        public double getMean() {
+            long values = count.get();
+            return values == 0 ? 0 : (double) sum.get() / values;
+        }
+
+        /**
+         * Get the largest value recorded.
+         * @return The largest value, or 0 if no values have been recorded.
+         */
+        public long getMax() {
+            return max.get();
+        }
+
+        /**
+         * Get a percentile of the values recorded.
+         * @param percentile The percentile, between 0 and 100.
+         * @return The value at the percentile, or 0 if no values have been recorded.
+         */
+        public long getPercentile(double percentile) {
+            long values = count.get();
+            if (values == 0)
+                return 0;
+
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * values));
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return Math.min(getBucketUpperBound(i), max.get());
+                }
+            }
+            return max.get();
+        }
+
+        private static int getBucket(long value) {
+            if (value < SUB_BUCKETS)
+                return (int) value;
+
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+        }
+
+        private static long getBucketUpperBound(int bucket) {
+            if (bucket < SUB_BUCKETS)
+                return bucket;
+
+            int shift = bucket / SUB_BUCKETS - 1;
+            long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+            return lower + (1L << shift) - 1;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package io.getconnect.client.store;
+
+/**
+ * An {@link EventStore} that keeps count of its pending events, including events persisted before it was opened,
+ * so the count can be reported without reading the events.
+ */
+public interface CountingEventStore extends EventStore {
+    /**
+     * Get the number of events pending in the store, whether or not they are leased.
+     * @return The number of pending events.
+     */
+    int getPendingEvents();
+}
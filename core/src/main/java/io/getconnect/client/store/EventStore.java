@@ -8,6 +8,8 @@ import java.util.Map;
 
 /**
  * Interface for an object that can store events.
+ * Implementations must be safe to use from multiple threads, as events are added
+ * while a push of previously stored events is in progress.
  */
 public interface EventStore {
     /**
@@ -40,4 +42,32 @@ public interface EventStore {
      * @throws IOException If there is a problem acknowledging the event.
      */
     void acknowledge(String collection, Event event) throws IOException;
+
+    /**
+     * Acknowledge a batch of events in the same collection have been sent.
+     * Implementations should do this in time proportional to the size of the batch.
+     * @param collection The collection in which the events belong.
+     * @param events The events to acknowledge.
+     * @throws IOException If there is a problem acknowledging the events.
+     */
+    void acknowledge(String collection, Iterable<Event> events) throws IOException;
+
+    /**
+     * Lease a bounded batch of pending events, so a push can drain a large backlog a batch at a time.
+     * Leased events are not returned by another lease until they are acknowledged, released or the lease expires,
+     * so concurrent pushes don't send the same event twice. {@link #read(String)} and {@link #readAll()} ignore leases.
+     * @param maxEvents The maximum number of events to lease, or 0 for no limit.
+     * @param leaseMillis Time in milliseconds after which events that have not been acknowledged are pending again.
+     * @return A {@link Map} of collection names to the events leased, oldest first. Empty if no events are available.
+     * @throws IOException If there is a problem reading the events from the store.
+     */
+    Map<String, Iterable<Event>> lease(int maxEvents, long leaseMillis) throws IOException;
+
+    /**
+     * Release leased events that were not sent, so the next lease returns them again.
+     * @param collection The collection in which the events belong.
+     * @param events The events to release.
+     * @throws IOException If there is a problem releasing the events.
+     */
+    void release(String collection, Iterable<Event> events) throws IOException;
 }
@@ -0,0 +1,12 @@
+package io.getconnect.client.store;
+
+import java.io.IOException;
+
+/**
+ * Represents an exception when an event cannot be added to a bounded event store because it is full.
+ */
+public class EventStoreFullException extends IOException {
+    public EventStoreFullException(String message) {
+        super(message);
+    }
+}
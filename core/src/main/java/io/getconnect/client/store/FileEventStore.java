@@ -6,12 +6,24 @@ import io.getconnect.client.Event;
 
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
-public class FileEventStore implements EventStore {
+/**
+ * Persistent event store that keeps each event in a file of its own, in a directory for each collection.
+ * The pending events are indexed in memory, in the order they were added, so reading the pending events
+ * doesn't list the directories. The index is rebuilt from the files on disk when the store is created.
+ */
+public class FileEventStore implements CountingEventStore {
+    private static final String EVENT_EXTENSION = ".json";
+    private static final String CORRUPT_EXTENSION = ".corrupt";
+
     private final File root;
     private final Base32 base32;
+    private final HashMap<String, LinkedHashMap<String, File>> index = new HashMap<String, LinkedHashMap<String, File>>();
+    private final Leases leases = new Leases();
 
     public FileEventStore(String projectId, File root) throws IOException {
         if (!root.exists() || !root.isDirectory()) {
@@ -20,6 +32,7 @@ public class FileEventStore implements EventStore {
 
         this.root = new File(root, projectId);
         this.base32 = new Base32();
+        loadIndex();
     }
 
     protected File getCollectionDir(String collection) throws IOException {
@@ -35,73 +48,230 @@ public class FileEventStore implements EventStore {
     }
 
     @Override
-    public void add(String collection, Event event) throws IOException {
+    public synchronized void add(String collection, Event event) throws IOException {
         File collectionDir = getCollectionDir(collection);
 
-        File eventFile = new File(collectionDir, event.getEventStoreId() + ".json");
+        File eventFile = new File(collectionDir, event.getEventStoreId() + EVENT_EXTENSION);
 
-        Writer writer = null;
+        OutputStream stream = null;
         try {
-            OutputStream stream = new FileOutputStream(eventFile);
-            writer = new OutputStreamWriter(stream, "UTF-8");
-            writer.write(event.getEventJSON());
+            stream = new FileOutputStream(eventFile);
+            stream.write(event.getEventJSONBytes());
         } finally {
-            if (writer != null) {
-                try { writer.close(); } catch (IOException ex) { }
+            if (stream != null) {
+                try { stream.close(); } catch (IOException ex) { }
             }
         }
+
+        getCollectionIndex(collection).put(event.getEventStoreId(), eventFile);
     }
 
     @Override
-    public Iterable<Event> read(String collection) throws IOException {
-        File collectionDir = getCollectionDir(collection);
+    public synchronized Iterable<Event> read(String collection) throws IOException {
+        LinkedHashMap<String, File> pending = getCollectionIndex(collection);
+        ArrayList<Event> events = new ArrayList<Event>(pending.size());
+        ArrayList<String> unreadable = new ArrayList<String>();
+
+        for (Map.Entry<String, File> entry : pending.entrySet()) {
+            Event event = readEvent(entry.getKey(), entry.getValue());
+            if (event != null) {
+                events.add(event);
+            } else {
+                unreadable.add(entry.getKey());
+            }
+        }
+
+        for (String eventStoreId : unreadable) {
+            discard(collection, eventStoreId);
+        }
+        return events;
+    }
+
+    @Override
+    public synchronized Map<String, Iterable<Event>> readAll() throws IOException {
+        HashMap<String, Iterable<Event>> events = new HashMap<String, Iterable<Event>>();
+
+        for (String collection : index.keySet()) {
+            events.put(collection, this.read(collection));
+        }
 
-        File[] files = collectionDir.listFiles();
-        ArrayList<Event> events = new ArrayList<Event>();
-
-        for (File file : files) {
-            BufferedReader reader = null;
-            try {
-                FileInputStream fin = new FileInputStream(file);
-                reader = new BufferedReader(new InputStreamReader(fin, "UTF-8"));
-                StringBuilder sb = new StringBuilder();
-                String line = null;
-                while ((line = reader.readLine()) != null) {
-                    sb.append(line).append("\n");
+        return events;
+    }
+
+    /**
+     * Lease pending events, picking them from the index while holding the lock and only reading their files
+     * once it is released, so events can still be added while the batch is read.
+     */
+    @Override
+    public Map<String, Iterable<Event>> lease(int maxEvents, long leaseMillis) throws IOException {
+        LinkedHashMap<String, LinkedHashMap<String, File>> leased = new LinkedHashMap<String, LinkedHashMap<String, File>>();
+        synchronized (this) {
+            long expiry = leases.start(leaseMillis);
+            int count = 0;
+            for (Map.Entry<String, LinkedHashMap<String, File>> collection : index.entrySet()) {
+                for (Map.Entry<String, File> entry : collection.getValue().entrySet()) {
+                    if (Leases.isFull(count, maxEvents))
+                        break;
+
+                    if (leases.acquire(entry.getKey(), expiry)) {
+                        LinkedHashMap<String, File> files = leased.get(collection.getKey());
+                        if (files == null) {
+                            files = new LinkedHashMap<String, File>();
+                            leased.put(collection.getKey(), files);
+                        }
+                        files.put(entry.getKey(), entry.getValue());
+                        count++;
+                    }
                 }
-                reader.close();
-                String eventJSON = sb.toString();
+            }
+        }
 
-                events.add(Event.fromEventStore(eventJSON, file.getName().replace(".json", "")));
-            } catch (Exception e){
-                if (reader != null) {
-                    try { reader.close(); } catch (IOException ex) { }
+        LinkedHashMap<String, Iterable<Event>> batch = new LinkedHashMap<String, Iterable<Event>>();
+        LinkedHashMap<String, String> unreadable = new LinkedHashMap<String, String>();
+        for (Map.Entry<String, LinkedHashMap<String, File>> collection : leased.entrySet()) {
+            for (Map.Entry<String, File> entry : collection.getValue().entrySet()) {
+                Event event = readEvent(entry.getKey(), entry.getValue());
+                if (event != null) {
+                    Leases.addToBatch(batch, collection.getKey(), event);
+                } else {
+                    unreadable.put(entry.getKey(), collection.getKey());
                 }
             }
         }
 
-        return events;
+        if (!unreadable.isEmpty()) {
+            synchronized (this) {
+                for (Map.Entry<String, String> entry : unreadable.entrySet()) {
+                    discard(entry.getValue(), entry.getKey());
+                }
+            }
+        }
+        return batch;
     }
 
     @Override
-    public Map<String, Iterable<Event>> readAll() throws IOException {
-        HashMap<String, Iterable<Event>> events = new HashMap<String, Iterable<Event>>();
+    public synchronized void release(String collection, Iterable<Event> events) throws IOException {
+        for (Event event : events) {
+            leases.release(event.getEventStoreId());
+        }
+    }
 
-        File[] collections = root.listFiles();
+    @Override
+    public synchronized int getPendingEvents() {
+        int count = 0;
+        for (LinkedHashMap<String, File> pending : index.values()) {
+            count += pending.size();
+        }
+        return count;
+    }
 
-        for (File collection : collections) {
-            String collectionName = new String(base32.decode(collection.getName()));
-            events.put(collectionName, this.read(collectionName));
+    @Override
+    public synchronized void acknowledge(String collection, Event event) throws IOException {
+        leases.release(event.getEventStoreId());
+        File eventFile = getCollectionIndex(collection).remove(event.getEventStoreId());
+        if (eventFile == null) {
+            eventFile = new File(getCollectionDir(collection), event.getEventStoreId() + EVENT_EXTENSION);
         }
 
-        return events;
+        eventFile.delete();
     }
 
     @Override
-    public void acknowledge(String collection, Event event) throws IOException {
-        File collectionDir = getCollectionDir(collection);
+    public synchronized void acknowledge(String collection, Iterable<Event> events) throws IOException {
+        for (Event event : events) {
+            acknowledge(collection, event);
+        }
+    }
+
+    /**
+     * Read a pending event from its file.
+     * @return The event, or null if the file could not be read.
+     */
+    private Event readEvent(String eventStoreId, File file) {
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new FileInputStream(file));
+            byte[] eventJSON = new byte[(int) file.length()];
+            in.readFully(eventJSON);
+            in.close();
 
-        new File(collectionDir, event.getEventStoreId() + ".json").delete();
+            return Event.fromEventStore(eventJSON, eventStoreId);
+        } catch (Exception e){
+            if (in != null) {
+                try { in.close(); } catch (IOException ex) { }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Stop tracking an event whose file could not be read, so it is neither read nor counted again.
+     * The file is moved aside to be inspected, or deleted if it can't be.
+     */
+    private void discard(String collection, String eventStoreId) {
+        leases.release(eventStoreId);
+        File eventFile = getCollectionIndex(collection).remove(eventStoreId);
+        if (eventFile != null && !eventFile.renameTo(new File(eventFile.getParentFile(), eventStoreId + CORRUPT_EXTENSION))) {
+            eventFile.delete();
+        }
+    }
+
+    private LinkedHashMap<String, File> getCollectionIndex(String collection) {
+        LinkedHashMap<String, File> pending = index.get(collection);
+        if (pending == null) {
+            pending = new LinkedHashMap<String, File>();
+            index.put(collection, pending);
+        }
+        return pending;
+    }
+
+    /**
+     * Rebuild the index from the event files on disk, oldest first.
+     */
+    private void loadIndex() {
+        File[] collectionDirs = root.listFiles();
+        if (collectionDirs == null)
+            return;
+
+        for (File collectionDir : collectionDirs) {
+            File[] files = collectionDir.listFiles();
+            if (files == null)
+                continue;
+
+            EventFile[] eventFiles = new EventFile[files.length];
+            for (int i = 0; i < files.length; i++) {
+                eventFiles[i] = new EventFile(files[i]);
+            }
+            Arrays.sort(eventFiles);
+
+            LinkedHashMap<String, File> pending = getCollectionIndex(new String(base32.decode(collectionDir.getName())));
+            for (EventFile eventFile : eventFiles) {
+                String name = eventFile.file.getName();
+                if (name.endsWith(EVENT_EXTENSION)) {
+                    pending.put(name.substring(0, name.length() - EVENT_EXTENSION.length()), eventFile.file);
+                }
+            }
+        }
+    }
+
+    /**
+     * An event file along with its modification time, ordered by the time the event was added.
+     */
+    private static class EventFile implements Comparable<EventFile> {
+        final File file;
+        final long lastModified;
+
+        EventFile(File file) {
+            this.file = file;
+            this.lastModified = file.lastModified();
+        }
+
+        @Override
+        public int compareTo(EventFile other) {
+            if (lastModified != other.lastModified)
+                return lastModified < other.lastModified ? -1 : 1;
+            return file.getName().compareTo(other.file.getName());
+        }
     }
 
 }
@@ -0,0 +1,90 @@
+package io.getconnect.client.store;
+
+import io.getconnect.client.Event;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * The events handed out by {@link EventStore#lease(int, long)} that have been neither acknowledged nor released,
+ * along with the time each lease expires. Leases are only kept in memory, so every event is pending again when a
+ * persistent store is reopened. Not thread safe; the stores only use it while holding their own lock.
+ */
+final class Leases {
+    private final HashMap<String, Long> expiries = new HashMap<String, Long>();
+
+    /**
+     * Forget the leases that have expired, returning their events to pending, before handing out new leases.
+     * Expired leases are only forgotten here, so the leases kept are bounded by the events in flight.
+     * @param leaseMillis Time in milliseconds for which the new leases are held.
+     * @return The time the new leases expire.
+     */
+    long start(long leaseMillis) {
+        long now = System.currentTimeMillis();
+        Iterator<Long> leases = expiries.values().iterator();
+        while (leases.hasNext()) {
+            if (leases.next() <= now) {
+                leases.remove();
+            }
+        }
+        return now + leaseMillis;
+    }
+
+    /**
+     * Lease an event unless it is leased already.
+     * @param eventStoreId The event store ID of the event.
+     * @param expiry The time the lease expires, as returned by {@link #start(long)}.
+     * @return Whether the event was leased.
+     */
+    boolean acquire(String eventStoreId, long expiry) {
+        if (expiries.containsKey(eventStoreId))
+            return false;
+
+        expiries.put(eventStoreId, expiry);
+        return true;
+    }
+
+    /**
+     * Whether an event is leased.
+     * @param eventStoreId The event store ID of the event.
+     * @return Whether the event is leased.
+     */
+    boolean isLeased(String eventStoreId) {
+        return expiries.containsKey(eventStoreId);
+    }
+
+    /**
+     * Return an event to pending, or forget its lease once it has been acknowledged or discarded.
+     * @param eventStoreId The event store ID of the event.
+     */
+    void release(String eventStoreId) {
+        expiries.remove(eventStoreId);
+    }
+
+    /**
+     * Add a leased event to the batch returned by {@link EventStore#lease(int, long)}.
+     * @param batch A {@link Map} of collection name to an {@link ArrayList} of the events leased in that collection.
+     * @param collection The collection in which the event belongs.
+     * @param event The leased event.
+     */
+    static void addToBatch(Map<String, Iterable<Event>> batch, String collection, Event event) {
+        ArrayList<Event> collectionEvents = (ArrayList<Event>) batch.get(collection);
+        if (collectionEvents == null) {
+            collectionEvents = new ArrayList<Event>();
+            batch.put(collection, collectionEvents);
+        }
+        collectionEvents.add(event);
+    }
+
+    /**
+     * Whether a batch holds as many events as were asked for.
+     * @param count The number of events in the batch.
+     * @param maxEvents The maximum number of events in the batch, or 0 for no limit.
+     * @return Whether no more events should be leased.
+     */
+    static boolean isFull(int count, int maxEvents) {
+        return maxEvents > 0 && count >= maxEvents;
+    }
+}
@@ -0,0 +1,443 @@
+package io.getconnect.client.store;
+
+import com.google.gson.JsonSyntaxException;
+
+import io.getconnect.client.Event;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Persistent event store backed by a fixed-size memory-mapped file organised as a ring buffer.
+ * Adding an event copies it into mapped memory, so pending events survive a crash of the process
+ * without a system call per event. The head and tail of the ring are persisted in a header at the
+ * start of the file.
+ *
+ * Each record is an int length, a state byte, the collection name, the event store ID and the event JSON.
+ * Records are aligned to 8 bytes and never wrap; the space left at the end of the ring is marked as padding instead.
+ */
+public class MappedRingEventStore implements CountingEventStore, Closeable {
+    /**
+     * The default time in milliseconds that {@link OverflowPolicy#BLOCK} waits for space.
+     */
+    public static final long DEFAULT_BLOCK_TIMEOUT_MILLIS = 10000;
+
+    private static final int MAGIC = 0x434e5231;
+    private static final int HEADER_SIZE = 32;
+    private static final int CAPACITY_OFFSET = 4;
+    private static final int HEAD_OFFSET = 8;
+    private static final int TAIL_OFFSET = 16;
+
+    private static final int RECORD_HEADER_SIZE = 5;
+    private static final byte PENDING = 0;
+    private static final byte ACKNOWLEDGED = 1;
+    private static final byte PADDING = 2;
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private final long blockTimeoutMillis;
+
+    // Absolute positions; the offset into the ring is the position modulo the capacity.
+    private long head;
+    private long tail;
+    private final LinkedHashMap<String, Long> pending = new LinkedHashMap<String, Long>();
+    private final Leases leases = new Leases();
+
+    public MappedRingEventStore(String projectId, File root, int capacity, OverflowPolicy overflowPolicy) throws IOException {
+        this(projectId, root, capacity, overflowPolicy, DEFAULT_BLOCK_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Creates a memory-mapped ring buffer event store, or opens the existing one for the project.
+     * @param projectId ID of the project the events belong to.
+     * @param root Directory in which the ring buffer file is kept.
+     * @param capacity Size in bytes of the ring buffer. Ignored if the file already exists.
+     * @param overflowPolicy What to do with new events when the ring buffer is full. {@link OverflowPolicy#SAMPLE} is not supported.
+     * @param blockTimeoutMillis Time in milliseconds that {@link OverflowPolicy#BLOCK} waits for space.
+     * @throws IOException If the ring buffer file cannot be created or mapped.
+     */
+    public MappedRingEventStore(String projectId, File root, int capacity, OverflowPolicy overflowPolicy, long blockTimeoutMillis) throws IOException {
+        if (!root.exists() || !root.isDirectory()) {
+            throw new IOException("The root directory '" + root + "' does not exist or is not a directory.");
+        }
+        if (overflowPolicy == OverflowPolicy.SAMPLE) {
+            // Records can only be reclaimed from the head of the ring, so a random pending event cannot be discarded.
+            throw new IllegalArgumentException("The ring buffer event store does not support sampling.");
+        }
+
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutMillis = blockTimeoutMillis;
+
+        File ringFile = new File(root, projectId + ".ring");
+        boolean exists = ringFile.exists() && ringFile.length() >= HEADER_SIZE;
+        this.file = new RandomAccessFile(ringFile, "rw");
+
+        int existingCapacity = 0;
+        if (exists && file.readInt() == MAGIC) {
+            existingCapacity = file.readInt();
+        }
+
+        this.capacity = existingCapacity > 0 ? existingCapacity : align(capacity);
+        this.buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) this.capacity);
+
+        if (existingCapacity > 0) {
+            this.head = buffer.getLong(HEAD_OFFSET);
+            this.tail = buffer.getLong(TAIL_OFFSET);
+            recover();
+        } else {
+            buffer.putInt(CAPACITY_OFFSET, this.capacity);
+            buffer.putLong(HEAD_OFFSET, 0);
+            buffer.putLong(TAIL_OFFSET, 0);
+            buffer.putInt(0, MAGIC);
+        }
+    }
+
+    @Override
+    public synchronized void add(String collection, Event event) throws IOException {
+        byte[] collectionBytes = collection.getBytes("UTF-8");
+        byte[] id = event.getEventStoreId().getBytes("UTF-8");
+        byte[] json = event.getEventJSONBytes();
+
+        int length = 2 + collectionBytes.length + 2 + id.length + json.length;
+        int recordSize = align(RECORD_HEADER_SIZE + length);
+        if (recordSize > capacity) {
+            throw new IOException("The event is larger than the capacity of the event store.");
+        }
+
+        reserve(recordSize);
+
+        int offset = offset(tail);
+        if (capacity - offset < recordSize) {
+            writeRecordHeader(offset, capacity - offset - RECORD_HEADER_SIZE, PADDING);
+            tail += capacity - offset;
+            offset = 0;
+        }
+
+        int position = HEADER_SIZE + offset + RECORD_HEADER_SIZE;
+        position = putBytes(position, collectionBytes);
+        position = putBytes(position, id);
+        buffer.position(position);
+        buffer.put(json);
+        writeRecordHeader(offset, length, PENDING);
+
+        pending.put(event.getEventStoreId(), tail);
+        tail += recordSize;
+        buffer.putLong(TAIL_OFFSET, tail);
+    }
+
+    @Override
+    public synchronized Iterable<Event> read(String collection) throws IOException {
+        ArrayList<Event> events = new ArrayList<Event>();
+        for (long position : pending.values()) {
+            RingRecord record = readRecord(position);
+            Event event = record.collection.equals(collection) ? record.toEvent() : null;
+            if (event != null) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    @Override
+    public synchronized Map<String, Iterable<Event>> readAll() throws IOException {
+        HashMap<String, Iterable<Event>> events = new HashMap<String, Iterable<Event>>();
+        for (long position : pending.values()) {
+            RingRecord record = readRecord(position);
+            Event event = record.toEvent();
+            if (event == null)
+                continue;
+
+            ArrayList<Event> collectionEvents = (ArrayList<Event>) events.get(record.collection);
+            if (collectionEvents == null) {
+                collectionEvents = new ArrayList<Event>();
+                events.put(record.collection, collectionEvents);
+            }
+            collectionEvents.add(event);
+        }
+        return events;
+    }
+
+    /**
+     * Lease pending events in the order they were added, across all collections.
+     */
+    @Override
+    public synchronized Map<String, Iterable<Event>> lease(int maxEvents, long leaseMillis) throws IOException {
+        long expiry = leases.start(leaseMillis);
+        LinkedHashMap<String, Iterable<Event>> batch = new LinkedHashMap<String, Iterable<Event>>();
+        int count = 0;
+        for (Map.Entry<String, Long> entry : pending.entrySet()) {
+            if (Leases.isFull(count, maxEvents))
+                break;
+
+            if (leases.acquire(entry.getKey(), expiry)) {
+                RingRecord record = readRecord(entry.getValue());
+                Event event = record.toEvent();
+                if (event == null) {
+                    leases.release(entry.getKey());
+                    continue;
+                }
+                Leases.addToBatch(batch, record.collection, event);
+                count++;
+            }
+        }
+        return batch;
+    }
+
+    @Override
+    public synchronized void release(String collection, Iterable<Event> events) throws IOException {
+        for (Event event : events) {
+            leases.release(event.getEventStoreId());
+        }
+    }
+
+    @Override
+    public synchronized void acknowledge(String collection, Event event) throws IOException {
+        if (markAcknowledged(event)) {
+            advanceHead();
+            notifyAll();
+        }
+    }
+
+    @Override
+    public synchronized void acknowledge(String collection, Iterable<Event> events) throws IOException {
+        boolean acknowledged = false;
+        for (Event event : events) {
+            acknowledged |= markAcknowledged(event);
+        }
+        if (acknowledged) {
+            advanceHead();
+            notifyAll();
+        }
+    }
+
+    @Override
+    public synchronized int getPendingEvents() {
+        return pending.size();
+    }
+
+    /**
+     * Get the number of bytes of the ring buffer in use, including acknowledged events
+     * that cannot be reclaimed until the events before them are acknowledged.
+     * @return The number of bytes in use.
+     */
+    public synchronized long getUsedBytes() {
+        return tail - head;
+    }
+
+    /**
+     * Get the size in bytes of the ring buffer.
+     * @return The size in bytes of the ring buffer.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Write the mapped memory to disk and close the ring buffer file.
+     * @throws IOException If there is a problem closing the file.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        file.close();
+    }
+
+    private boolean markAcknowledged(Event event) {
+        leases.release(event.getEventStoreId());
+        Long position = pending.remove(event.getEventStoreId());
+        if (position == null)
+            return false;
+
+        buffer.put(HEADER_SIZE + offset(position) + 4, ACKNOWLEDGED);
+        return true;
+    }
+
+    private void reserve(int recordSize) throws IOException {
+        long deadline = System.currentTimeMillis() + blockTimeoutMillis;
+        while (!hasSpace(recordSize)) {
+            switch (overflowPolicy) {
+                case DROP_OLDEST:
+                    dropOldest();
+                    break;
+                case BLOCK:
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        throw new EventStoreFullException("Timed out waiting for space in the event store.");
+                    }
+                    try {
+                        wait(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new EventStoreFullException("Interrupted waiting for space in the event store.");
+                    }
+                    break;
+                default:
+                    throw new EventStoreFullException("The event store is full.");
+            }
+        }
+    }
+
+    private boolean hasSpace(int recordSize) {
+        long free = capacity - (tail - head);
+        int contiguous = capacity - offset(tail);
+        return contiguous >= recordSize ? free >= recordSize : free >= contiguous + recordSize;
+    }
+
+    private void dropOldest() {
+        int offset = offset(head);
+        if (buffer.get(HEADER_SIZE + offset + 4) == PENDING) {
+            // Pending events are kept in ring order, so the oldest is always first.
+            Iterator<String> oldest = pending.keySet().iterator();
+            leases.release(oldest.next());
+            oldest.remove();
+        }
+        buffer.put(HEADER_SIZE + offset + 4, ACKNOWLEDGED);
+        advanceHead();
+    }
+
+    private void advanceHead() {
+        while (head < tail) {
+            int offset = offset(head);
+            if (buffer.get(HEADER_SIZE + offset + 4) == PENDING)
+                break;
+            head += align(RECORD_HEADER_SIZE + buffer.getInt(HEADER_SIZE + offset));
+        }
+        if (head == tail) {
+            // Start again at the beginning of the ring so records don't need padding.
+            // The tail is persisted first; a crash in between leaves the head after the tail, which recovery
+            // treats as an empty ring.
+            head = 0;
+            tail = 0;
+            buffer.putLong(TAIL_OFFSET, tail);
+            buffer.putLong(HEAD_OFFSET, head);
+            return;
+        }
+        buffer.putLong(HEAD_OFFSET, head);
+    }
+
+    /**
+     * Rebuild the index of pending events from the records between the head and the tail.
+     * Scanning stops at the first record that is not well formed, for example one torn by a crash,
+     * and the tail is moved back to it so that it is overwritten.
+     */
+    private void recover() {
+        if (head > tail || head < 0) {
+            // A crash while the ring was being reset, after every record had been acknowledged.
+            head = 0;
+            tail = 0;
+            buffer.putLong(TAIL_OFFSET, tail);
+            buffer.putLong(HEAD_OFFSET, head);
+            return;
+        }
+
+        long position = head;
+        while (position < tail) {
+            int offset = offset(position);
+            int length = buffer.getInt(HEADER_SIZE + offset);
+            byte state = buffer.get(HEADER_SIZE + offset + 4);
+            long size = length < 0 ? -1 : (RECORD_HEADER_SIZE + (long) length + 7) & ~7L;
+            if (size < RECORD_HEADER_SIZE || size > capacity - offset || size > tail - position)
+                break;
+            if (state == PENDING) {
+                if (!hasValidStrings(offset, length))
+                    break;
+                pending.put(readRecord(position).eventStoreId, position);
+            } else if (state != ACKNOWLEDGED && state != PADDING) {
+                break;
+            }
+            position += size;
+        }
+
+        if (position < tail) {
+            tail = position;
+            buffer.putLong(TAIL_OFFSET, tail);
+        }
+    }
+
+    private boolean hasValidStrings(int offset, int length) {
+        int start = HEADER_SIZE + offset + RECORD_HEADER_SIZE;
+        int collectionLength = buffer.getShort(start) & 0xffff;
+        if (2 + collectionLength + 2 > length)
+            return false;
+        int idLength = buffer.getShort(start + 2 + collectionLength) & 0xffff;
+        return 2 + collectionLength + 2 + idLength <= length;
+    }
+
+    private RingRecord readRecord(long position) {
+        int offset = offset(position);
+        int length = buffer.getInt(HEADER_SIZE + offset);
+
+        int start = HEADER_SIZE + offset + RECORD_HEADER_SIZE;
+        buffer.position(start);
+        String collection = getString(buffer.getShort() & 0xffff);
+        String eventStoreId = getString(buffer.getShort() & 0xffff);
+        byte[] eventJSON = new byte[length - (buffer.position() - start)];
+        buffer.get(eventJSON);
+        return new RingRecord(collection, eventStoreId, eventJSON);
+    }
+
+    private void writeRecordHeader(int offset, int length, byte state) {
+        buffer.putInt(HEADER_SIZE + offset, length);
+        buffer.put(HEADER_SIZE + offset + 4, state);
+    }
+
+    private int putBytes(int position, byte[] bytes) {
+        buffer.putShort(position, (short) bytes.length);
+        buffer.position(position + 2);
+        buffer.put(bytes);
+        return position + 2 + bytes.length;
+    }
+
+    private String getString(int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        try {
+            return new String(bytes, "UTF-8");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private int offset(long position) {
+        return (int) (position % capacity);
+    }
+
+    private static int align(int size) {
+        return (size + 7) & ~7;
+    }
+
+    private static class RingRecord {
+        final String collection;
+        final String eventStoreId;
+        final byte[] eventJSON;
+
+        RingRecord(String collection, String eventStoreId, byte[] eventJSON) {
+            this.collection = collection;
+            this.eventStoreId = eventStoreId;
+            this.eventJSON = eventJSON;
+        }
+
+        /**
+         * Create the event stored in the record.
+         * @return The event, or null if the stored JSON could not be parsed, so the event is skipped.
+         */
+        Event toEvent() {
+            try {
+                return Event.fromEventStore(eventJSON, eventStoreId);
+            } catch (JsonSyntaxException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -4,48 +4,365 @@ import io.getconnect.client.Event;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Random;
 
-public class MemoryEventStore implements EventStore {
-    private final HashMap<String, ArrayList<Event>> events = new HashMap<String, ArrayList<Event>>();
+/**
+ * Event store that keeps pending events in memory.
+ * By default the store is unbounded. A bounded store limits the number of events and/or the size of their JSON,
+ * either across all collections or for each collection separately, and applies an {@link OverflowPolicy} when full.
+ */
+public class MemoryEventStore implements CountingEventStore {
+    /**
+     * The default time in milliseconds that {@link OverflowPolicy#BLOCK} waits for space.
+     */
+    public static final long DEFAULT_BLOCK_TIMEOUT_MILLIS = 10000;
 
-    private ArrayList<Event> getEvents(String collection) {
-        ArrayList<Event> collectionEvents = events.get(collection);
+    private final HashMap<String, CollectionEvents> events = new HashMap<String, CollectionEvents>();
+    private final int maxEvents;
+    private final long maxBytes;
+    private final boolean perCollection;
+    private final OverflowPolicy overflowPolicy;
+    private final long blockTimeoutMillis;
+    private final Random random = new Random();
+    private final Leases leases = new Leases();
+
+    private int totalEvents = 0;
+    private long totalBytes = 0;
+    private long sequence = 0;
+    private long overflowedSinceFull = 0;
+    private long rejectedCount = 0;
+    private long droppedCount = 0;
+
+    /**
+     * Creates an unbounded in-memory event store.
+     */
+    public MemoryEventStore() {
+        this(0, 0, false, OverflowPolicy.REJECT);
+    }
+
+    public MemoryEventStore(int maxEvents, long maxBytes, boolean perCollection, OverflowPolicy overflowPolicy) {
+        this(maxEvents, maxBytes, perCollection, overflowPolicy, DEFAULT_BLOCK_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Creates a bounded in-memory event store.
+     * @param maxEvents The maximum number of pending events, or 0 for no limit.
+     * @param maxBytes The maximum size in bytes of the JSON of pending events, or 0 for no limit.
+     * @param perCollection Whether the limits apply to each collection separately rather than to all collections together.
+     * @param overflowPolicy What to do with new events when the store is full.
+     * @param blockTimeoutMillis Time in milliseconds that {@link OverflowPolicy#BLOCK} waits for space.
+     */
+    public MemoryEventStore(int maxEvents, long maxBytes, boolean perCollection, OverflowPolicy overflowPolicy, long blockTimeoutMillis) {
+        this.maxEvents = maxEvents;
+        this.maxBytes = maxBytes;
+        this.perCollection = perCollection;
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutMillis = blockTimeoutMillis;
+    }
+
+    private CollectionEvents getEvents(String collection) {
+        CollectionEvents collectionEvents = events.get(collection);
         if (collectionEvents == null) {
-            collectionEvents = new ArrayList<Event>();
+            collectionEvents = new CollectionEvents(overflowPolicy == OverflowPolicy.SAMPLE);
             events.put(collection, collectionEvents);
         }
         return collectionEvents;
     }
 
     @Override
-    public void add(String collection, Event event) throws IOException {
-        ArrayList<Event> collectionEvents = getEvents(collection);
-        collectionEvents.add(event);
+    public synchronized void add(String collection, Event event) throws IOException {
+        CollectionEvents collectionEvents = getEvents(collection);
+        if (collectionEvents.pending.containsKey(event.getEventStoreId()))
+            return;
+
+        int size = maxBytes > 0 ? event.getEventJSONBytes().length : 0;
+        if (maxBytes > 0 && size > maxBytes) {
+            rejectedCount++;
+            throw new EventStoreFullException("The event is larger than the capacity of the event store.");
+        }
+
+        if (!reserve(collectionEvents, size))
+            return;
+
+        collectionEvents.add(new PendingEvent(event, size, sequence++));
+        totalEvents++;
+        totalBytes += size;
     }
 
     @Override
-    public Iterable<Event> read(String collection) throws IOException {
-        ArrayList<Event> collectionEvents = getEvents(collection);
-        return collectionEvents;
+    public synchronized Iterable<Event> read(String collection) throws IOException {
+        return getEvents(collection).toEvents();
     }
 
     @Override
-    public Map<String, Iterable<Event>> readAll() throws IOException {
+    public synchronized Map<String, Iterable<Event>> readAll() throws IOException {
         HashMap<String, Iterable<Event>> allEvents = new HashMap<String, Iterable<Event>>();
 
         for (String collection : events.keySet()) {
-            ArrayList<Event> collectionEvents = events.get(collection);
-            allEvents.put(collection, collectionEvents);
+            allEvents.put(collection, events.get(collection).toEvents());
         }
 
         return allEvents;
     }
 
     @Override
-    public void acknowledge(String collection, Event event) throws IOException {
-        ArrayList<Event> collectionEvents = getEvents(collection);
-        collectionEvents.remove(event);
+    public synchronized void acknowledge(String collection, Event event) throws IOException {
+        if (remove(getEvents(collection), event.getEventStoreId())) {
+            notifyAll();
+        }
+    }
+
+    @Override
+    public synchronized void acknowledge(String collection, Iterable<Event> events) throws IOException {
+        CollectionEvents collectionEvents = getEvents(collection);
+        boolean removed = false;
+        for (Event event : events) {
+            removed |= remove(collectionEvents, event.getEventStoreId());
+        }
+        if (removed) {
+            notifyAll();
+        }
+    }
+
+    @Override
+    public synchronized Map<String, Iterable<Event>> lease(int maxEvents, long leaseMillis) throws IOException {
+        long expiry = leases.start(leaseMillis);
+        LinkedHashMap<String, Iterable<Event>> batch = new LinkedHashMap<String, Iterable<Event>>();
+        int count = 0;
+        for (Map.Entry<String, CollectionEvents> collection : events.entrySet()) {
+            for (PendingEvent event : collection.getValue().pending.values()) {
+                if (Leases.isFull(count, maxEvents))
+                    return batch;
+
+                if (leases.acquire(event.event.getEventStoreId(), expiry)) {
+                    Leases.addToBatch(batch, collection.getKey(), event.event);
+                    count++;
+                }
+            }
+        }
+        return batch;
+    }
+
+    @Override
+    public synchronized void release(String collection, Iterable<Event> events) throws IOException {
+        for (Event event : events) {
+            leases.release(event.getEventStoreId());
+        }
+    }
+
+    /**
+     * Get the number of events pending in the store.
+     * @return The number of pending events.
+     */
+    @Override
+    public synchronized int getPendingEvents() {
+        return totalEvents;
+    }
+
+    /**
+     * Get the size of the JSON of the events pending in the store. Only tracked if the store has a byte limit.
+     * @return The size in bytes of the pending events.
+     */
+    public synchronized long getPendingBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Get the number of events pending in a collection.
+     * @param collection The name of the collection.
+     * @return The number of pending events in the collection.
+     */
+    public synchronized int getPendingEvents(String collection) {
+        CollectionEvents collectionEvents = events.get(collection);
+        return collectionEvents == null ? 0 : collectionEvents.pending.size();
+    }
+
+    /**
+     * Get the number of events that could not be added because the store was full.
+     * @return The number of rejected events.
+     */
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * Get the number of events discarded to make room for, or in favour of, newer events.
+     * @return The number of dropped events.
+     */
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * Make room for a new event according to the overflow policy.
+     * @return Whether the event should be added, false if it was discarded by sampling.
+     */
+    private boolean reserve(CollectionEvents collectionEvents, int size) throws IOException {
+        if (hasSpace(collectionEvents, size)) {
+            overflowedSinceFull = 0;
+            return true;
+        }
+
+        long deadline = System.currentTimeMillis() + blockTimeoutMillis;
+        while (!hasSpace(collectionEvents, size)) {
+            switch (overflowPolicy) {
+                case DROP_OLDEST:
+                    dropOldest(collectionEvents);
+                    break;
+                case SAMPLE:
+                    // Reservoir sampling: every event offered while the store is full has the same chance of being kept.
+                    overflowedSinceFull++;
+                    int kept = perCollection ? collectionEvents.pending.size() : totalEvents;
+                    if (random.nextDouble() * (kept + overflowedSinceFull) >= kept) {
+                        droppedCount++;
+                        return false;
+                    }
+                    while (!hasSpace(collectionEvents, size)) {
+                        dropRandom(collectionEvents);
+                    }
+                    return true;
+                case BLOCK:
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        rejectedCount++;
+                        throw new EventStoreFullException("Timed out waiting for space in the event store.");
+                    }
+                    try {
+                        wait(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        rejectedCount++;
+                        throw new EventStoreFullException("Interrupted waiting for space in the event store.");
+                    }
+                    break;
+                default:
+                    rejectedCount++;
+                    throw new EventStoreFullException("The event store is full.");
+            }
+        }
+        return true;
+    }
+
+    private boolean hasSpace(CollectionEvents collectionEvents, int size) {
+        int pendingEvents = perCollection ? collectionEvents.pending.size() : totalEvents;
+        long pendingBytes = perCollection ? collectionEvents.bytes : totalBytes;
+        return (maxEvents <= 0 || pendingEvents < maxEvents) && (maxBytes <= 0 || pendingBytes + size <= maxBytes);
+    }
+
+    private void dropOldest(CollectionEvents collectionEvents) {
+        CollectionEvents oldest = collectionEvents;
+        if (!perCollection) {
+            // Each collection is in the order events were added, so the oldest event is the first of one of them.
+            oldest = null;
+            for (CollectionEvents candidate : events.values()) {
+                if (!candidate.pending.isEmpty() && (oldest == null ||
+                        candidate.first().sequence < oldest.first().sequence)) {
+                    oldest = candidate;
+                }
+            }
+        }
+        remove(oldest, oldest.first().event.getEventStoreId());
+        droppedCount++;
+    }
+
+    private void dropRandom(CollectionEvents collectionEvents) {
+        int index = random.nextInt(perCollection ? collectionEvents.pending.size() : totalEvents);
+        Iterable<CollectionEvents> candidates = perCollection ? Collections.singleton(collectionEvents) : events.values();
+        for (CollectionEvents candidate : candidates) {
+            if (index < candidate.pending.size()) {
+                remove(candidate, candidate.get(index).event.getEventStoreId());
+                break;
+            }
+            index -= candidate.pending.size();
+        }
+        droppedCount++;
+    }
+
+    private boolean remove(CollectionEvents collectionEvents, String eventStoreId) {
+        PendingEvent removed = collectionEvents.remove(eventStoreId);
+        if (removed == null)
+            return false;
+
+        leases.release(eventStoreId);
+        totalEvents--;
+        totalBytes -= removed.size;
+        return true;
+    }
+
+    /**
+     * The pending events of a single collection keyed by event store ID, in the order they were added.
+     * When indexed, the events are also kept in an array in no particular order, so a random event can be picked
+     * without walking the map.
+     */
+    private static class CollectionEvents {
+        final LinkedHashMap<String, PendingEvent> pending = new LinkedHashMap<String, PendingEvent>();
+        private final ArrayList<PendingEvent> slots;
+        long bytes = 0;
+
+        CollectionEvents(boolean indexed) {
+            this.slots = indexed ? new ArrayList<PendingEvent>() : null;
+        }
+
+        void add(PendingEvent event) {
+            pending.put(event.event.getEventStoreId(), event);
+            bytes += event.size;
+            if (slots != null) {
+                event.slot = slots.size();
+                slots.add(event);
+            }
+        }
+
+        PendingEvent remove(String eventStoreId) {
+            PendingEvent removed = pending.remove(eventStoreId);
+            if (removed == null)
+                return null;
+
+            bytes -= removed.size;
+            if (slots != null) {
+                // Move the last event into the slot of the removed one, so removing is constant time.
+                PendingEvent last = slots.remove(slots.size() - 1);
+                if (last != removed) {
+                    last.slot = removed.slot;
+                    slots.set(removed.slot, last);
+                }
+            }
+            return removed;
+        }
+
+        /**
+         * Get an event by its position in the index. Only available when the events are indexed.
+         */
+        PendingEvent get(int index) {
+            return slots.get(index);
+        }
+
+        PendingEvent first() {
+            return pending.values().iterator().next();
+        }
+
+        ArrayList<Event> toEvents() {
+            ArrayList<Event> events = new ArrayList<Event>(pending.size());
+            for (PendingEvent event : pending.values()) {
+                events.add(event.event);
+            }
+            return events;
+        }
+    }
+
+    private static class PendingEvent {
+        final Event event;
+        final int size;
+        final long sequence;
+        int slot;
+
+        PendingEvent(Event event, int size, long sequence) {
+            this.event = event;
+            this.size = size;
+            this.sequence = sequence;
+        }
     }
 }
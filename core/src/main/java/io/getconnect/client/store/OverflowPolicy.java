@@ -0,0 +1,27 @@
+package io.getconnect.client.store;
+
+/**
+ * What a bounded event store does with a new event when it is full.
+ */
+public enum OverflowPolicy {
+    /**
+     * Wait for pending events to be acknowledged, failing once the store's timeout has elapsed.
+     */
+    BLOCK,
+
+    /**
+     * Reject the new event with an {@link EventStoreFullException}.
+     */
+    REJECT,
+
+    /**
+     * Discard the oldest pending events to make room for the new event.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Keep a uniform random sample of the events added while the store is full, discarding a random
+     * pending event to make room for each new event that is kept. Only supported by {@link MemoryEventStore}.
+     */
+    SAMPLE
+}
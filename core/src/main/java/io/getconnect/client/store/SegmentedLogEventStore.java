@@ -0,0 +1,578 @@
+package io.getconnect.client.store;
+
+import com.google.gson.JsonSyntaxException;
+import org.apache.commons.codec.binary.Base32;
+
+import io.getconnect.client.Event;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Persistent event store that appends events to rolling segment files for each collection.
+ * Each record in a segment is an int length followed by the event store ID and the event JSON.
+ * Acknowledged event store IDs are appended to an ack file next to the segment, and a segment
+ * (along with its ack file) is deleted once every event in it has been acknowledged.
+ */
+public class SegmentedLogEventStore implements CountingEventStore, Closeable {
+    /**
+     * The default maximum size in bytes of a segment before a new one is started.
+     */
+    public static final long DEFAULT_MAX_SEGMENT_BYTES = 4 * 1024 * 1024;
+
+    private static final String SEGMENT_EXTENSION = ".log";
+    private static final String ACK_EXTENSION = ".ack";
+
+    private final File root;
+    private final long maxSegmentBytes;
+    private final Base32 base32;
+    private final Map<String, CollectionLog> collections = new HashMap<String, CollectionLog>();
+    private final Leases leases = new Leases();
+
+    public SegmentedLogEventStore(String projectId, File root) throws IOException {
+        this(projectId, root, DEFAULT_MAX_SEGMENT_BYTES);
+    }
+
+    public SegmentedLogEventStore(String projectId, File root, long maxSegmentBytes) throws IOException {
+        if (!root.exists() || !root.isDirectory()) {
+            throw new IOException("The root directory '" + root + "' does not exist or is not a directory.");
+        }
+
+        this.root = new File(root, projectId);
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.base32 = new Base32();
+
+        File[] collectionDirs = this.root.listFiles();
+        if (collectionDirs != null) {
+            for (File collectionDir : collectionDirs) {
+                String collection = new String(base32.decode(collectionDir.getName()), "UTF-8");
+                collections.put(collection, new CollectionLog(collectionDir));
+            }
+        }
+    }
+
+    protected CollectionLog getCollectionLog(String collection) throws IOException {
+        CollectionLog log = collections.get(collection);
+        if (log != null)
+            return log;
+
+        File collectionDir = new File(root, base32.encodeAsString(collection.getBytes("UTF-8")));
+        if (!collectionDir.exists() && !collectionDir.mkdirs())
+            throw new IOException("Could not create collection directory '" + collectionDir + "'");
+
+        log = new CollectionLog(collectionDir);
+        collections.put(collection, log);
+        return log;
+    }
+
+    @Override
+    public synchronized void add(String collection, Event event) throws IOException {
+        getCollectionLog(collection).append(event);
+    }
+
+    @Override
+    public synchronized Iterable<Event> read(String collection) throws IOException {
+        return getCollectionLog(collection).readPending();
+    }
+
+    @Override
+    public synchronized Map<String, Iterable<Event>> readAll() throws IOException {
+        HashMap<String, Iterable<Event>> events = new HashMap<String, Iterable<Event>>();
+
+        for (String collection : collections.keySet()) {
+            events.put(collection, collections.get(collection).readPending());
+        }
+
+        return events;
+    }
+
+    /**
+     * Lease pending events oldest first, picking them from the index while holding the lock and only reading
+     * the segments once it is released, so events can still be added while the batch is read.
+     */
+    @Override
+    public Map<String, Iterable<Event>> lease(int maxEvents, long leaseMillis) throws IOException {
+        LinkedHashMap<String, PendingRecords> leased = new LinkedHashMap<String, PendingRecords>();
+        synchronized (this) {
+            long expiry = leases.start(leaseMillis);
+            int count = 0;
+            for (Map.Entry<String, CollectionLog> collection : collections.entrySet()) {
+                if (Leases.isFull(count, maxEvents))
+                    break;
+
+                PendingRecords records = collection.getValue().leasePending(maxEvents > 0 ? maxEvents - count : 0, expiry);
+                if (records.size() > 0) {
+                    leased.put(collection.getKey(), records);
+                    count += records.size();
+                }
+            }
+        }
+
+        LinkedHashMap<String, Iterable<Event>> batch = new LinkedHashMap<String, Iterable<Event>>();
+        ArrayList<String> unreadable = new ArrayList<String>();
+        try {
+            for (Map.Entry<String, PendingRecords> collection : leased.entrySet()) {
+                ArrayList<Event> events = collection.getValue().read(unreadable);
+                if (!events.isEmpty()) {
+                    batch.put(collection.getKey(), events);
+                }
+            }
+        } catch (IOException e) {
+            synchronized (this) {
+                for (PendingRecords records : leased.values()) {
+                    for (String eventStoreId : records.positions.keySet()) {
+                        leases.release(eventStoreId);
+                    }
+                }
+            }
+            throw e;
+        }
+
+        if (!unreadable.isEmpty()) {
+            synchronized (this) {
+                for (String eventStoreId : unreadable) {
+                    leases.release(eventStoreId);
+                }
+            }
+        }
+        return batch;
+    }
+
+    @Override
+    public synchronized void release(String collection, Iterable<Event> events) throws IOException {
+        for (Event event : events) {
+            leases.release(event.getEventStoreId());
+        }
+    }
+
+    @Override
+    public synchronized void acknowledge(String collection, Event event) throws IOException {
+        acknowledge(collection, Collections.singletonList(event));
+    }
+
+    @Override
+    public synchronized void acknowledge(String collection, Iterable<Event> events) throws IOException {
+        getCollectionLog(collection).acknowledge(events);
+    }
+
+    @Override
+    public synchronized int getPendingEvents() {
+        int count = 0;
+        for (CollectionLog log : collections.values()) {
+            count += log.pending.size();
+        }
+        return count;
+    }
+
+    /**
+     * Close the open segment and ack files.
+     * @throws IOException If there is a problem closing the files.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        for (CollectionLog log : collections.values()) {
+            log.close();
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try { closeable.close(); } catch (IOException ex) { }
+        }
+    }
+
+    /**
+     * The segments of a single collection, along with the position of every event pending acknowledgement.
+     */
+    protected class CollectionLog {
+        private final File dir;
+        private final ArrayList<Segment> segments = new ArrayList<Segment>();
+        private final LinkedHashMap<String, RecordPosition> pending = new LinkedHashMap<String, RecordPosition>();
+        private long nextSegmentNumber = 0;
+
+        CollectionLog(File dir) throws IOException {
+            this.dir = dir;
+            recover();
+        }
+
+        void append(Event event) throws IOException {
+            byte[] id = event.getEventStoreId().getBytes("UTF-8");
+            byte[] json = event.getEventJSONBytes();
+
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(4 + 2 + id.length + json.length);
+            DataOutputStream record = new DataOutputStream(buffer);
+            record.writeInt(2 + id.length + json.length);
+            record.writeShort(id.length);
+            record.write(id);
+            record.write(json);
+
+            Segment segment = activeSegment(buffer.size());
+            long offset = segment.size;
+            segment.append(buffer.toByteArray());
+            pending.put(event.getEventStoreId(), new RecordPosition(segment, offset, buffer.size()));
+        }
+
+        /**
+         * Read every pending event, oldest first, skipping corrupt records.
+         */
+        Iterable<Event> readPending() throws IOException {
+            PendingRecords records = new PendingRecords();
+            for (Map.Entry<String, RecordPosition> entry : pending.entrySet()) {
+                records.add(entry.getKey(), entry.getValue());
+            }
+            return records.read(new ArrayList<String>());
+        }
+
+        /**
+         * Lease pending events oldest first without reading them, skipping events that are leased already.
+         * @param maxEvents The maximum number of events to lease, or 0 for no limit.
+         * @param leaseExpiry The time the events are leased until.
+         */
+        PendingRecords leasePending(int maxEvents, long leaseExpiry) {
+            PendingRecords records = new PendingRecords();
+            for (Map.Entry<String, RecordPosition> entry : pending.entrySet()) {
+                if (Leases.isFull(records.size(), maxEvents))
+                    break;
+
+                if (leases.acquire(entry.getKey(), leaseExpiry)) {
+                    records.add(entry.getKey(), entry.getValue());
+                }
+            }
+            return records;
+        }
+
+        void acknowledge(Iterable<Event> events) throws IOException {
+            // Each ack file touched by the batch is written once, when it is flushed or its segment is deleted.
+            Set<Segment> acknowledged = new LinkedHashSet<Segment>();
+            for (Event event : events) {
+                leases.release(event.getEventStoreId());
+                RecordPosition position = pending.remove(event.getEventStoreId());
+                if (position != null) {
+                    position.segment.acknowledge(event.getEventStoreId());
+                    acknowledged.add(position.segment);
+                }
+            }
+
+            for (Segment segment : acknowledged) {
+                if (segment.isFullyAcknowledged()) {
+                    segment.delete();
+                    segments.remove(segment);
+                } else {
+                    segment.flushAcknowledgements();
+                }
+            }
+        }
+
+        void close() throws IOException {
+            for (Segment segment : segments) {
+                segment.close();
+            }
+        }
+
+        private Segment activeSegment(int recordSize) throws IOException {
+            Segment active = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            if (active != null && !active.sealed && (active.size == 0 || active.size + recordSize <= maxSegmentBytes))
+                return active;
+
+            if (active != null)
+                active.close();
+
+            Segment segment = new Segment(dir, nextSegmentNumber++);
+            segments.add(segment);
+            return segment;
+        }
+
+        private void recover() throws IOException {
+            File[] files = dir.listFiles(new FilenameFilter() {
+                @Override
+                public boolean accept(File dir, String name) {
+                    return name.endsWith(SEGMENT_EXTENSION);
+                }
+            });
+            if (files == null)
+                return;
+
+            Arrays.sort(files);
+            for (File file : files) {
+                String name = file.getName();
+                long number;
+                try {
+                    number = Long.parseLong(name.substring(0, name.length() - SEGMENT_EXTENSION.length()));
+                } catch (NumberFormatException e) {
+                    // not a segment written by this store
+                    continue;
+                }
+                nextSegmentNumber = Math.max(nextSegmentNumber, number + 1);
+
+                Segment segment = new Segment(dir, number);
+                segment.recover(pending);
+                if (segment.isFullyAcknowledged()) {
+                    segment.delete();
+                } else {
+                    segments.add(segment);
+                }
+            }
+        }
+    }
+
+    /**
+     * A single segment file and its ack file.
+     */
+    protected static class Segment {
+        final File logFile;
+        final File ackFile;
+        long size = 0;
+        int recordCount = 0;
+        int acknowledgedCount = 0;
+        // Set once a failed write could not be undone, so no more records are appended after it.
+        boolean sealed = false;
+        private OutputStream logOut;
+        private DataOutputStream ackOut;
+
+        Segment(File dir, long number) {
+            String name = String.format("%020d", number);
+            this.logFile = new File(dir, name + SEGMENT_EXTENSION);
+            this.ackFile = new File(dir, name + ACK_EXTENSION);
+        }
+
+        void append(byte[] record) throws IOException {
+            if (logOut == null) {
+                logOut = new FileOutputStream(logFile, true);
+            }
+            try {
+                logOut.write(record);
+            } catch (IOException e) {
+                // Drop whatever part of the record was written, so the next record starts where it should.
+                closeQuietly(logOut);
+                logOut = null;
+                if (!truncate()) {
+                    sealed = true;
+                }
+                throw e;
+            }
+            size += record.length;
+            recordCount++;
+        }
+
+        private boolean truncate() {
+            RandomAccessFile file = null;
+            try {
+                file = new RandomAccessFile(logFile, "rw");
+                file.setLength(size);
+                return true;
+            } catch (IOException e) {
+                return false;
+            } finally {
+                closeQuietly(file);
+            }
+        }
+
+        void acknowledge(String eventStoreId) throws IOException {
+            if (ackOut == null) {
+                ackOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(ackFile, true)));
+            }
+            ackOut.writeUTF(eventStoreId);
+            acknowledgedCount++;
+        }
+
+        void flushAcknowledgements() throws IOException {
+            if (ackOut != null) {
+                ackOut.flush();
+            }
+        }
+
+        boolean isFullyAcknowledged() {
+            return recordCount > 0 && acknowledgedCount >= recordCount;
+        }
+
+        void close() throws IOException {
+            closeQuietly(ackOut);
+            ackOut = null;
+            if (logOut != null) {
+                logOut.close();
+                logOut = null;
+            }
+        }
+
+        void delete() throws IOException {
+            close();
+            ackFile.delete();
+            if (!logFile.delete() && logFile.exists())
+                throw new IOException("Could not delete segment '" + logFile + "'");
+        }
+
+        /**
+         * Rebuild the record counts and pending events from the files on disk, discarding
+         * a partially written or corrupt record and everything after it.
+         */
+        void recover(Map<String, RecordPosition> pending) throws IOException {
+            Set<String> acknowledged = new HashSet<String>();
+            if (ackFile.exists()) {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(ackFile)));
+                try {
+                    while (true) {
+                        acknowledged.add(in.readUTF());
+                    }
+                } catch (EOFException e) {
+                    // end of the ack file (or a partially written entry)
+                } finally {
+                    closeQuietly(in);
+                }
+            }
+
+            long length = logFile.length();
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(logFile)));
+            try {
+                while (size < length) {
+                    Record record;
+                    try {
+                        record = Record.read(in, length - size);
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    if (acknowledged.contains(record.eventStoreId)) {
+                        acknowledgedCount++;
+                    } else {
+                        pending.put(record.eventStoreId, new RecordPosition(this, size, record.size()));
+                    }
+                    size += record.size();
+                    recordCount++;
+                }
+            } finally {
+                closeQuietly(in);
+            }
+
+            if (size < length && !truncate())
+                throw new IOException("Could not truncate segment '" + logFile + "'");
+        }
+    }
+
+    /**
+     * Where the record of a pending event is, so it can be read without reading the records before it.
+     */
+    protected static class RecordPosition {
+        final Segment segment;
+        final long offset;
+        final long size;
+
+        RecordPosition(Segment segment, long offset, long size) {
+            this.segment = segment;
+            this.offset = offset;
+            this.size = size;
+        }
+    }
+
+    /**
+     * The positions of pending events to read from a collection. The records of pending events are complete and
+     * never move, so they can be read without holding the lock while more records are appended.
+     */
+    protected static class PendingRecords {
+        final LinkedHashMap<String, RecordPosition> positions = new LinkedHashMap<String, RecordPosition>();
+
+        void add(String eventStoreId, RecordPosition position) {
+            positions.put(eventStoreId, position);
+        }
+
+        int size() {
+            return positions.size();
+        }
+
+        /**
+         * Read the events, oldest first, skipping straight to each record.
+         * @param unreadable The event store IDs of events whose records are corrupt are added to this list.
+         */
+        ArrayList<Event> read(List<String> unreadable) throws IOException {
+            ArrayList<Event> events = new ArrayList<Event>(positions.size());
+            Segment segment = null;
+            DataInputStream in = null;
+            long offset = 0;
+            try {
+                for (Map.Entry<String, RecordPosition> entry : positions.entrySet()) {
+                    RecordPosition position = entry.getValue();
+                    if (position.segment != segment || position.offset < offset) {
+                        closeQuietly(in);
+                        segment = position.segment;
+                        in = new DataInputStream(new BufferedInputStream(new FileInputStream(segment.logFile)));
+                        offset = 0;
+                    }
+                    skipFully(in, position.offset - offset);
+
+                    Record record = Record.read(in, position.size);
+                    offset = position.offset + record.size();
+                    Event event = record.eventStoreId.equals(entry.getKey()) ? record.toEvent() : null;
+                    if (event != null) {
+                        events.add(event);
+                    } else {
+                        unreadable.add(entry.getKey());
+                    }
+                }
+            } finally {
+                closeQuietly(in);
+            }
+            return events;
+        }
+
+        private static void skipFully(InputStream in, long bytes) throws IOException {
+            while (bytes > 0) {
+                long skipped = in.skip(bytes);
+                if (skipped <= 0)
+                    throw new EOFException("Record is past the end of the segment");
+                bytes -= skipped;
+            }
+        }
+    }
+
+    /**
+     * A single record read from a segment.
+     */
+    protected static class Record {
+        final String eventStoreId;
+        final byte[] eventJSON;
+        private final int length;
+
+        private Record(String eventStoreId, byte[] eventJSON, int length) {
+            this.eventStoreId = eventStoreId;
+            this.eventJSON = eventJSON;
+            this.length = length;
+        }
+
+        static Record read(DataInputStream in, long available) throws IOException {
+            int length = in.readInt();
+            if (length < 2 || length > available - 4)
+                throw new EOFException("Incomplete record");
+            int idLength = in.readUnsignedShort();
+            if (2 + idLength > length)
+                throw new EOFException("Corrupt record");
+            byte[] id = new byte[idLength];
+            in.readFully(id);
+            byte[] eventJSON = new byte[length - 2 - idLength];
+            in.readFully(eventJSON);
+            return new Record(new String(id, "UTF-8"), eventJSON, length);
+        }
+
+        long size() {
+            return 4 + length;
+        }
+
+        /**
+         * Create the event stored in the record.
+         * @return The event, or null if the stored JSON could not be parsed, so the event is skipped.
+         */
+        Event toEvent() {
+            try {
+                return Event.fromEventStore(eventJSON, eventStoreId);
+            } catch (JsonSyntaxException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package io.getconnect.client.store;
+
+import io.getconnect.client.Event;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Event store that keeps the most recent events in memory and only spills the oldest events to a persistent
+ * store once the events in memory cross a threshold, for example while the Connect API is unreachable.
+ * Events spilled to the persistent store are recovered by it on restart; events still in memory are not,
+ * unless the store is closed, which spills them first.
+ */
+public class TieredEventStore implements CountingEventStore, Closeable {
+    private final EventStore spillStore;
+    private final int maxMemoryEvents;
+    private final long maxMemoryBytes;
+
+    // Events in memory, oldest first, keyed by event store ID.
+    private final LinkedHashMap<String, MemoryEvent> memory = new LinkedHashMap<String, MemoryEvent>();
+    // Events leased while in memory. They stay leased if they are spilled before they are acknowledged or released.
+    private final Leases leases = new Leases();
+    private long memoryBytes = 0;
+    private long spilledCount = 0;
+
+    /**
+     * Creates a tiered event store.
+     * @param spillStore The persistent {@link EventStore} to which events are spilled.
+     * @param maxMemoryEvents The maximum number of events kept in memory, or 0 for no limit.
+     * @param maxMemoryBytes The maximum size in bytes of the JSON of the events kept in memory, or 0 for no limit.
+     */
+    public TieredEventStore(EventStore spillStore, int maxMemoryEvents, long maxMemoryBytes) {
+        this.spillStore = spillStore;
+        this.maxMemoryEvents = maxMemoryEvents;
+        this.maxMemoryBytes = maxMemoryBytes;
+    }
+
+    @Override
+    public synchronized void add(String collection, Event event) throws IOException {
+        int size = maxMemoryBytes > 0 ? event.getEventJSONBytes().length : 0;
+        memory.put(event.getEventStoreId(), new MemoryEvent(collection, event, size));
+        memoryBytes += size;
+
+        try {
+            while (!memory.isEmpty() && ((maxMemoryEvents > 0 && memory.size() > maxMemoryEvents) ||
+                    (maxMemoryBytes > 0 && memoryBytes > maxMemoryBytes))) {
+                spillOldest();
+            }
+        } catch (IOException e) {
+            // The event is not added if there is no room for it, so memory doesn't grow while the persistent store is failing.
+            MemoryEvent added = memory.remove(event.getEventStoreId());
+            if (added != null) {
+                memoryBytes -= added.size;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized Iterable<Event> read(String collection) throws IOException {
+        // Spilled events are always older than the events in memory.
+        ArrayList<Event> events = new ArrayList<Event>();
+        for (Event event : spillStore.read(collection)) {
+            events.add(event);
+        }
+        for (MemoryEvent memoryEvent : memory.values()) {
+            if (memoryEvent.collection.equals(collection)) {
+                events.add(memoryEvent.event);
+            }
+        }
+        return events;
+    }
+
+    @Override
+    public synchronized Map<String, Iterable<Event>> readAll() throws IOException {
+        HashMap<String, Iterable<Event>> events = new HashMap<String, Iterable<Event>>();
+        for (Map.Entry<String, Iterable<Event>> collection : spillStore.readAll().entrySet()) {
+            ArrayList<Event> collectionEvents = new ArrayList<Event>();
+            for (Event event : collection.getValue()) {
+                collectionEvents.add(event);
+            }
+            events.put(collection.getKey(), collectionEvents);
+        }
+
+        for (MemoryEvent memoryEvent : memory.values()) {
+            ArrayList<Event> collectionEvents = (ArrayList<Event>) events.get(memoryEvent.collection);
+            if (collectionEvents == null) {
+                collectionEvents = new ArrayList<Event>();
+                events.put(memoryEvent.collection, collectionEvents);
+            }
+            collectionEvents.add(memoryEvent.event);
+        }
+        return events;
+    }
+
+    /**
+     * Lease spilled events from the persistent store first, then events in memory.
+     */
+    @Override
+    public synchronized Map<String, Iterable<Event>> lease(int maxEvents, long leaseMillis) throws IOException {
+        long expiry = leases.start(leaseMillis);
+        LinkedHashMap<String, Iterable<Event>> batch = new LinkedHashMap<String, Iterable<Event>>();
+        int count = 0;
+        for (Map.Entry<String, Iterable<Event>> collection : spillStore.lease(maxEvents, leaseMillis).entrySet()) {
+            for (Event event : collection.getValue()) {
+                // Already leased by an earlier lease of the events in memory.
+                if (leases.isLeased(event.getEventStoreId()))
+                    continue;
+
+                Leases.addToBatch(batch, collection.getKey(), event);
+                count++;
+            }
+        }
+
+        for (MemoryEvent memoryEvent : memory.values()) {
+            if (Leases.isFull(count, maxEvents))
+                break;
+
+            if (leases.acquire(memoryEvent.event.getEventStoreId(), expiry)) {
+                Leases.addToBatch(batch, memoryEvent.collection, memoryEvent.event);
+                count++;
+            }
+        }
+        return batch;
+    }
+
+    @Override
+    public synchronized void release(String collection, Iterable<Event> events) throws IOException {
+        ArrayList<Event> spilled = new ArrayList<Event>();
+        for (Event event : events) {
+            leases.release(event.getEventStoreId());
+            if (!memory.containsKey(event.getEventStoreId())) {
+                spilled.add(event);
+            }
+        }
+        if (!spilled.isEmpty()) {
+            spillStore.release(collection, spilled);
+        }
+    }
+
+    @Override
+    public synchronized void acknowledge(String collection, Event event) throws IOException {
+        leases.release(event.getEventStoreId());
+        MemoryEvent memoryEvent = memory.remove(event.getEventStoreId());
+        if (memoryEvent != null) {
+            memoryBytes -= memoryEvent.size;
+            return;
+        }
+        spillStore.acknowledge(collection, event);
+    }
+
+    @Override
+    public synchronized void acknowledge(String collection, Iterable<Event> events) throws IOException {
+        ArrayList<Event> spilled = new ArrayList<Event>();
+        for (Event event : events) {
+            leases.release(event.getEventStoreId());
+            MemoryEvent memoryEvent = memory.remove(event.getEventStoreId());
+            if (memoryEvent != null) {
+                memoryBytes -= memoryEvent.size;
+            } else {
+                spilled.add(event);
+            }
+        }
+        if (!spilled.isEmpty()) {
+            spillStore.acknowledge(collection, spilled);
+        }
+    }
+
+    /**
+     * Get the number of events pending in memory and in the spill store, including events spilled before a restart.
+     * Spilled events are only counted if the spill store is a {@link CountingEventStore}.
+     * @return The number of pending events.
+     */
+    @Override
+    public synchronized int getPendingEvents() {
+        int count = memory.size();
+        if (spillStore instanceof CountingEventStore) {
+            count += ((CountingEventStore) spillStore).getPendingEvents();
+        }
+        return count;
+    }
+
+    /**
+     * Get the number of events pending in memory.
+     * @return The number of events in memory.
+     */
+    public synchronized int getMemoryEvents() {
+        return memory.size();
+    }
+
+    /**
+     * Get the number of events that have been spilled to the persistent store.
+     * @return The number of spilled events.
+     */
+    public synchronized long getSpilledCount() {
+        return spilledCount;
+    }
+
+    /**
+     * Spill every event in memory to the persistent store, then close it if it is {@link Closeable}.
+     * @throws IOException If there is a problem spilling the events or closing the persistent store.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        while (!memory.isEmpty()) {
+            spillOldest();
+        }
+        if (spillStore instanceof Closeable) {
+            ((Closeable) spillStore).close();
+        }
+    }
+
+    private void spillOldest() throws IOException {
+        Iterator<MemoryEvent> oldest = memory.values().iterator();
+        MemoryEvent memoryEvent = oldest.next();
+        // Only forget the event once the persistent store has it.
+        spillStore.add(memoryEvent.collection, memoryEvent.event);
+        oldest.remove();
+        memoryBytes -= memoryEvent.size;
+        spilledCount++;
+    }
+
+    private static class MemoryEvent {
+        final String collection;
+        final Event event;
+        final int size;
+
+        MemoryEvent(String collection, Event event, int size) {
+            this.collection = collection;
+            this.event = event;
+            this.size = size;
+        }
+    }
+}
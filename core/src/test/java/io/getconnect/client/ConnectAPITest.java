@@ -1,19 +1,37 @@
 package io.getconnect.client;
 
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.squareup.okhttp.mockwebserver.Dispatcher;
 import com.squareup.okhttp.mockwebserver.MockResponse;
 import com.squareup.okhttp.mockwebserver.MockWebServer;
 import com.squareup.okhttp.mockwebserver.RecordedRequest;
 
+import okio.GzipSource;
+import okio.Okio;
+
 import org.junit.Test;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.hamcrest.CoreMatchers.containsString;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import io.getconnect.client.exceptions.CircuitOpenException;
 import io.getconnect.client.exceptions.ConnectException;
 import io.getconnect.client.exceptions.InvalidEventException;
+import io.getconnect.client.exceptions.ServerException;
 
 /**
  * Created by chadedrupt on 18/09/15.
@@ -122,4 +140,301 @@ public class ConnectAPITest {
         }
     }
 
+    @Test
+    public void testThatTheBatchIsSentAsJSON() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setBody("{\"test\": [{\"success\": true}, {\"success\": true}]}"));
+        ConnectAPI connectAPI = new ConnectAPI("", "", server.url("").toString());
+
+        Map<String, Object> event1 = new HashMap<String, Object>();
+        event1.put("index", 1);
+        Map<String, Object> event2 = new HashMap<String, Object>();
+        event2.put("index", 2);
+        Map<String, Iterable<Event>> batch = new HashMap<String, Iterable<Event>>();
+        batch.put("test", Arrays.asList(new Event(event1), new Event(event2)));
+
+        Map<String, Iterable<EventPushResponse>> responses = connectAPI.pushEventBatch(batch);
+
+        RecordedRequest request = server.takeRequest();
+        Map<String, List<Map<String, Object>>> sentBatch = new Gson().fromJson(request.getBody().readUtf8(),
+                new TypeToken<Map<String, List<Map<String, Object>>>>() {}.getType());
+        assertEquals(2, sentBatch.get("test").size());
+        assertEquals(1.0, sentBatch.get("test").get(0).get("index"));
+        assertEquals(event2.get("id"), sentBatch.get("test").get(1).get("id"));
+        assertTrue(responses.get("test").iterator().next().isSuccessful());
+    }
+
+    @Test
+    public void testThatTheBatchResponseIsReadIntoCompactResponses() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setBody("{\"other\": [{\"success\": true}], \"test\": [{\"success\": true, \"extra\": {\"a\": [1]}}, " +
+                "{\"success\": false, \"message\": \"Invalid\"}, {\"duplicate\": true}]}"));
+        ConnectAPI connectAPI = new ConnectAPI("", "", server.url("").toString());
+
+        List<Event> events = new ArrayList<Event>();
+        for (int i = 0; i < 3; i++) {
+            Map<String, Object> event = new HashMap<String, Object>();
+            event.put("index", i);
+            events.add(new Event(event));
+        }
+        Map<String, Iterable<Event>> batch = new HashMap<String, Iterable<Event>>();
+        batch.put("test", events);
+
+        Map<String, Iterable<EventPushResponse>> responses = connectAPI.pushEventBatch(batch);
+
+        assertEquals(1, responses.size());
+        EventPushResponses testResponses = (EventPushResponses) responses.get("test");
+        assertEquals(3, testResponses.size());
+        assertEquals(2, testResponses.getSuccessCount());
+        assertTrue(testResponses.isSuccessful(0));
+        assertNull(testResponses.getMessage(0));
+        assertEquals("Invalid", testResponses.getMessage(1));
+        assertTrue(testResponses.isSuccessful(2));
+        int i = 0;
+        for (EventPushResponse response : testResponses) {
+            assertSame(events.get(i), response.getEvent());
+            assertFalse(response.isRetryable());
+            i++;
+        }
+        assertEquals(3, i);
+    }
+
+    @Test
+    public void testThatAResponseMissingEventsIsAnError() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setBody("{\"test\": [{\"success\": true}]}"));
+        ConnectAPI connectAPI = new ConnectAPI("", "", server.url("").toString());
+
+        Map<String, Object> event1 = new HashMap<String, Object>();
+        event1.put("index", 1);
+        Map<String, Object> event2 = new HashMap<String, Object>();
+        event2.put("index", 2);
+        Map<String, Iterable<Event>> batch = new HashMap<String, Iterable<Event>>();
+        batch.put("test", Arrays.asList(new Event(event1), new Event(event2)));
+
+        try {
+            connectAPI.pushEventBatch(batch);
+            fail("Expected a ConnectException");
+        } catch (ConnectException e) {
+            assertThat(e.getMessage(), containsString("missing events"));
+        }
+    }
+
+    @Test
+    public void testThatBatchesAreGzippedWhenCompressionIsEnabled() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setBody("{\"test\": [{\"success\": true}]}"));
+        ConnectAPI connectAPI = new ConnectAPI("", "", server.url("").toString());
+        connectAPI.setCompressionEnabled(true);
+
+        Map<String, Object> event = new HashMap<String, Object>();
+        event.put("test", "test");
+        Map<String, Iterable<Event>> batch = new HashMap<String, Iterable<Event>>();
+        batch.put("test", Arrays.asList(new Event(event)));
+
+        connectAPI.pushEventBatch(batch);
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals("gzip", request.getHeader("Content-Encoding"));
+        String body = Okio.buffer(new GzipSource(request.getBody())).readUtf8();
+        assertThat(body, containsString("\"test\":[{"));
+    }
+
+    @Test
+    public void testThatSmallSingleEventsAreNotGzipped() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse());
+        ConnectAPI connectAPI = new ConnectAPI("", "", server.url("").toString());
+        connectAPI.setCompressionEnabled(true);
+
+        Map<String, Object> event = new HashMap<String, Object>();
+        event.put("test", "test");
+
+        connectAPI.pushEvent("test", new Event(event));
+
+        assertNull(server.takeRequest().getHeader("Content-Encoding"));
+    }
+
+    @Test
+    public void testThatLargeBatchesAreSplitAndTheResponsesMerged() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                Map<String, List<Map<String, Object>>> sentBatch = new Gson().fromJson(request.getBody().readUtf8(),
+                        new TypeToken<Map<String, List<Map<String, Object>>>>() {}.getType());
+                if (sentBatch.get("test").get(0).get("index").equals(2.0)) {
+                    return new MockResponse().setResponseCode(500);
+                }
+                if (sentBatch.get("test").get(0).get("index").equals(4.0)) {
+                    return new MockResponse().setResponseCode(413);
+                }
+                StringBuilder body = new StringBuilder("{\"test\": [");
+                for (int i = 0; i < sentBatch.get("test").size(); i++) {
+                    body.append(i == 0 ? "" : ",").append("{\"success\": true}");
+                }
+                return new MockResponse().setBody(body.append("]}").toString());
+            }
+        });
+        ConnectAPI connectAPI = new ConnectAPI("", "", server.url("").toString());
+        connectAPI.setMaxBatchEvents(2);
+
+        List<Event> events = new ArrayList<Event>();
+        for (int i = 0; i < 5; i++) {
+            Map<String, Object> event = new HashMap<String, Object>();
+            event.put("index", i);
+            events.add(new Event(event));
+        }
+        Map<String, Iterable<Event>> batch = new HashMap<String, Iterable<Event>>();
+        batch.put("test", events);
+
+        Map<String, Iterable<EventPushResponse>> responses = connectAPI.pushEventBatch(batch);
+
+        assertEquals(3, server.getRequestCount());
+        int i = 0;
+        for (EventPushResponse response : responses.get("test")) {
+            assertSame(events.get(i), response.getEvent());
+            assertEquals(i < 2, response.isSuccessful());
+            assertEquals(i >= 2, response.isRetryable());
+            i++;
+        }
+        assertEquals(5, i);
+    }
+
+    @Test
+    public void testThatServerErrorsAreRetried() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(503).setHeader("Retry-After", "0"));
+        server.enqueue(new MockResponse().setResponseCode(500));
+        server.enqueue(new MockResponse());
+        ConnectAPI connectAPI = new ConnectAPI("", "", server.url("").toString());
+        connectAPI.setRetryPolicy(new RetryPolicy(3, 10, 100));
+
+        Map<String, Object> event = new HashMap<String, Object>();
+        event.put("test", "test");
+
+        connectAPI.pushEvent("test", new Event(event));
+
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void testThatARetryAfterLongerThanTheMaxDelayIsNotWaitedFor() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(503).setHeader("Retry-After", "3600"));
+        server.enqueue(new MockResponse());
+        ConnectAPI connectAPI = new ConnectAPI("", "", server.url("").toString());
+        connectAPI.setRetryPolicy(new RetryPolicy(3, 10, 100));
+
+        Map<String, Object> event = new HashMap<String, Object>();
+        event.put("test", "test");
+
+        try {
+            connectAPI.pushEvent("test", new Event(event));
+            fail("Expected a ServerException");
+        } catch (ServerException e) {
+            assertEquals(1, server.getRequestCount());
+        }
+    }
+
+    @Test
+    public void testThatInvalidEventsAreNotRetried() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(422).setBody("{ \"errors\": [] }"));
+        ConnectAPI connectAPI = new ConnectAPI("", "", server.url("").toString());
+        connectAPI.setRetryPolicy(new RetryPolicy(3, 10, 100));
+
+        Map<String, Object> event = new HashMap<String, Object>();
+        event.put("test", "test");
+
+        try {
+            connectAPI.pushEvent("test", new Event(event));
+            fail("Expected an InvalidEventException");
+        } catch (InvalidEventException e) {
+            assertEquals(1, server.getRequestCount());
+        }
+    }
+
+    @Test
+    public void testThatTheCircuitOpensAfterRepeatedFailures() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(500));
+        server.enqueue(new MockResponse().setResponseCode(500));
+        ConnectAPI connectAPI = new ConnectAPI("", "", server.url("").toString());
+        connectAPI.setCircuitBreaker(new CircuitBreaker(2, 60000));
+
+        Map<String, Object> event = new HashMap<String, Object>();
+        event.put("test", "test");
+
+        for (int i = 0; i < 3; i++) {
+            try {
+                connectAPI.pushEvent("test", new Event(event));
+                fail("Expected a ConnectException");
+            } catch (CircuitOpenException e) {
+                assertEquals(2, i);
+            } catch (ConnectException e) {
+                assertTrue(i < 2);
+            }
+        }
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void testThatAsyncPushesAreRetried() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(500));
+        server.enqueue(new MockResponse());
+        ConnectAPI connectAPI = new ConnectAPI("", "", server.url("").toString());
+        connectAPI.setRetryPolicy(new RetryPolicy(1, 10, 100));
+
+        Map<String, Object> event = new HashMap<String, Object>();
+        event.put("test", "test");
+
+        final CountDownLatch done = new CountDownLatch(1);
+        final boolean[] succeeded = new boolean[1];
+        connectAPI.pushEvent("test", new Event(event), new ConnectCallback() {
+            @Override
+            public void onSuccess() {
+                succeeded[0] = true;
+                done.countDown();
+            }
+
+            @Override
+            public void onFailure(ConnectException e) {
+                done.countDown();
+            }
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(succeeded[0]);
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void testThatConnectAPIsShareTheDefaultTransport() {
+        ConnectAPI first = new ConnectAPI("first", "");
+        ConnectAPI second = new ConnectAPI("second", "");
+
+        assertSame(first.client, second.client);
+        assertSame(ConnectTransport.getDefault().getHttpClient(), first.client);
+    }
+
+    @Test
+    public void testThatPushesAreSentWithTheGivenTransport() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse());
+        ConnectTransport transport = new ConnectTransport()
+                .setConnectionPool(1, 1000)
+                .setMaxRequestsPerHost(2);
+        ConnectAPI connectAPI = new ConnectAPI("", "", server.url("").toString(), transport);
+
+        Map<String, Object> event = new HashMap<String, Object>();
+        event.put("test", "test");
+        connectAPI.pushEvent("test", new Event(event));
+
+        assertSame(transport.getHttpClient(), connectAPI.client);
+        assertEquals(1, server.getRequestCount());
+        assertEquals(1, transport.getHttpClient().getConnectionPool().getConnectionCount());
+    }
+
 }
@@ -0,0 +1,401 @@
+package io.getconnect.client;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.squareup.okhttp.mockwebserver.Dispatcher;
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import com.squareup.okhttp.mockwebserver.MockWebServer;
+import com.squareup.okhttp.mockwebserver.RecordedRequest;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import io.getconnect.client.exceptions.ConnectException;
+
+import io.getconnect.client.metrics.MetricNames;
+import io.getconnect.client.metrics.SimpleMetricsRegistry;
+import io.getconnect.client.store.MemoryEventStore;
+
+public class ConnectClientTest {
+
+    @Test
+    public void testThatAutoFlushPushesWhenTheEventThresholdIsReached() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setBody("{\"test\": [{\"success\": true}, {\"success\": true}]}"));
+        MemoryEventStore eventStore = new MemoryEventStore();
+        ConnectClient client = new ConnectClient("", "", server.url("").toString(), eventStore);
+
+        startAutoFlush(client, new FlushPolicy(2, 0, 60000));
+        client.add("test", createEvent());
+        client.add("test", createEvent());
+
+        // Well before the maximum age, and before stopping pushes whatever is left.
+        RecordedRequest request = server.takeRequest(5, TimeUnit.SECONDS);
+        assertNotNull(request);
+        assertEquals(2, countSentEvents(request, "test"));
+        assertTrue(client.stopAutoFlush(5000));
+        assertEquals(1, server.getRequestCount());
+        assertFalse(eventStore.readAll().get("test").iterator().hasNext());
+    }
+
+    @Test
+    public void testThatEventsLeftPendingByAnAutoFlushArePushedAgainAfterABackoff() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setBody("{\"test\": [{\"success\": true}, {\"success\": false, \"message\": \"bad\"}]}"));
+        server.enqueue(new MockResponse().setBody("{\"test\": [{\"success\": true}]}"));
+        ConnectClient client = new ConnectClient("", "", server.url("").toString(), new MemoryEventStore());
+
+        startAutoFlush(client, new FlushPolicy(2, 0, 60000));
+        client.add("test", createEvent());
+        client.add("test", createEvent());
+        assertEquals(2, countSentEvents(server.takeRequest(5, TimeUnit.SECONDS), "test"));
+
+        // The rejected event is still pending, so it is pushed again without another event being added.
+        RecordedRequest request = server.takeRequest(5, TimeUnit.SECONDS);
+        assertNotNull(request);
+        assertEquals(1, countSentEvents(request, "test"));
+        assertTrue(client.stopAutoFlush(5000));
+    }
+
+    @Test
+    public void testThatAFailedAutoFlushIsNotRetriedOnEveryAdd() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(500));
+        server.enqueue(new MockResponse().setBody("{\"test\": [{\"success\": true}, {\"success\": true}, {\"success\": true}]}"));
+        ConnectClient client = new ConnectClient("", "", server.url("").toString(), new MemoryEventStore());
+
+        Semaphore flushes = startAutoFlush(client, new FlushPolicy(1, 0, 0));
+        client.add("test", createEvent());
+        assertTrue(flushes.tryAcquire(5, TimeUnit.SECONDS));
+
+        client.add("test", createEvent());
+        client.add("test", createEvent());
+        assertFalse(flushes.tryAcquire(300, TimeUnit.MILLISECONDS));
+        assertEquals(1, server.getRequestCount());
+
+        // The push is retried once the backoff has passed.
+        assertTrue(flushes.tryAcquire(5, TimeUnit.SECONDS));
+        server.takeRequest();
+        assertEquals(3, countSentEvents(server.takeRequest(), "test"));
+        assertTrue(client.stopAutoFlush(5000));
+    }
+
+    @Test
+    public void testThatAutoFlushPushesWhenEventsReachTheMaximumAge() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setBody("{\"test\": [{\"success\": true}]}"));
+        ConnectClient client = new ConnectClient("", "", server.url("").toString(), new MemoryEventStore());
+
+        client.startAutoFlush(new FlushPolicy(1000, 0, 50));
+        client.add("test", createEvent());
+
+        assertNotNull(server.takeRequest(5, TimeUnit.SECONDS));
+        assertTrue(client.stopAutoFlush(5000));
+    }
+
+    @Test
+    public void testThatStoppingAutoFlushPushesPendingEvents() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setBody("{\"test\": [{\"success\": true}]}"));
+        ConnectClient client = new ConnectClient("", "", server.url("").toString(), new MemoryEventStore());
+
+        client.startAutoFlush(new FlushPolicy(1000, 0, 0));
+        client.add("test", createEvent());
+        assertTrue(client.stopAutoFlush(5000));
+
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void testThatEventsAddedConcurrentlyAreAllStored() throws Exception {
+        final MemoryEventStore eventStore = new MemoryEventStore();
+        final ConnectClient client = new ConnectClient("", "", null, eventStore);
+        final int threadCount = 8;
+        final int eventsPerThread = 500;
+
+        Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < eventsPerThread; j++) {
+                        client.add("test", createEvent());
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        int count = 0;
+        for (Event event : eventStore.read("test")) {
+            count++;
+        }
+        assertEquals(threadCount * eventsPerThread, count);
+    }
+
+    @Test
+    public void testThatAddedEventsUseTheIdGenerator() throws Exception {
+        MemoryEventStore eventStore = new MemoryEventStore();
+        ConnectClient client = new ConnectClient("", "", null, eventStore);
+        final int[] generated = new int[1];
+        client.setIdGenerator(new EventIdGenerator() {
+            @Override
+            public String generateId() {
+                return "generated-" + generated[0]++;
+            }
+        });
+
+        client.add("test", createEvent());
+
+        Event event = eventStore.read("test").iterator().next();
+        assertEquals("generated-0", event.getEventStoreId());
+        assertEquals("generated-1", event.getId());
+    }
+
+    @Test
+    public void testThatPushingPendingEventsIsRecordedInMetrics() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setBody("{\"test\": [{\"success\": true}, {\"success\": false, \"message\": \"bad\"}]}"));
+        ConnectClient client = new ConnectClient("", "", server.url("").toString(), new MemoryEventStore());
+        SimpleMetricsRegistry metrics = new SimpleMetricsRegistry();
+        client.setMetrics(metrics);
+        client.setDeadLetterStore(new MemoryEventStore());
+
+        client.add("test", createEvent());
+        client.add("test", createEvent());
+        assertEquals(2, metrics.getGaugeValue(MetricNames.EVENTS_PENDING));
+
+        client.pushPending();
+
+        assertEquals(2, metrics.getCount(MetricNames.EVENTS_ADDED));
+        assertEquals(1, metrics.getCount(MetricNames.EVENTS_PUSHED));
+        assertEquals(1, metrics.getCount(MetricNames.EVENTS_FAILED));
+        assertEquals(1, metrics.getCount(MetricNames.EVENTS_DEAD_LETTERED));
+        assertEquals(1, metrics.getCount(MetricNames.REQUESTS));
+        assertEquals(1, metrics.getCount(MetricNames.RESPONSES_PREFIX + 200));
+        assertEquals(0, metrics.getGaugeValue(MetricNames.EVENTS_PENDING));
+        assertEquals(2, metrics.histogram(MetricNames.BATCH_EVENTS).getMax());
+        assertEquals(1, metrics.histogram(MetricNames.PUSH_PENDING_DURATION).getCount());
+        assertEquals(2, metrics.histogram(MetricNames.STORE_ADD_DURATION).getCount());
+    }
+
+    @Test
+    public void testThatThePendingGaugeIsReadFromTheEventStore() throws Exception {
+        MemoryEventStore eventStore = new MemoryEventStore();
+        eventStore.add("test", new Event(createEvent()));
+        eventStore.add("test", new Event(createEvent()));
+        ConnectClient client = new ConnectClient("", "", null, eventStore);
+        SimpleMetricsRegistry metrics = new SimpleMetricsRegistry();
+        client.setMetrics(metrics);
+
+        client.add("test", createEvent());
+
+        assertEquals(3, metrics.getGaugeValue(MetricNames.EVENTS_PENDING));
+    }
+
+    @Test
+    public void testThatPushPendingPushesTheEventsInLeasedBatches() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setBody("{\"test\": [{\"success\": false, \"message\": \"bad\"}, {\"success\": true}]}"));
+        server.enqueue(new MockResponse().setBody("{\"test\": [{\"success\": true}, {\"success\": true}]}"));
+        server.enqueue(new MockResponse().setBody("{\"test\": [{\"success\": true}]}"));
+        MemoryEventStore eventStore = new MemoryEventStore();
+        ConnectClient client = new ConnectClient("", "", server.url("").toString(), eventStore);
+        client.setPendingLease(2, 60000);
+
+        for (int i = 0; i < 5; i++) {
+            client.add("test", createEvent());
+        }
+        Map<String, Iterable<EventPushResponse>> details = client.pushPending();
+
+        int responses = 0;
+        for (EventPushResponse response : details.get("test")) {
+            responses++;
+        }
+        assertEquals(5, responses);
+        assertEquals(3, server.getRequestCount());
+        // The event that failed is released for the next push.
+        assertEquals(1, eventStore.getPendingEvents());
+        assertFalse(eventStore.lease(0, 60000).isEmpty());
+    }
+
+    @Test
+    public void testThatOverlappingAsyncPushesSendEachEventOnce() throws Exception {
+        final List<Object> sentIds = new ArrayList<Object>();
+        final CountDownLatch respond = new CountDownLatch(1);
+        MockWebServer server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                Map<String, List<Map<String, Object>>> sentBatch = new Gson().fromJson(request.getBody().readUtf8(),
+                        new TypeToken<Map<String, List<Map<String, Object>>>>() {}.getType());
+                StringBuilder body = new StringBuilder("{\"test\": [");
+                for (int i = 0; i < sentBatch.get("test").size(); i++) {
+                    synchronized (sentIds) {
+                        sentIds.add(sentBatch.get("test").get(i).get("id"));
+                    }
+                    body.append(i == 0 ? "" : ",").append("{\"success\": true}");
+                }
+                // Hold every response until all of the pushes have been started.
+                respond.await(5, TimeUnit.SECONDS);
+                return new MockResponse().setBody(body.append("]}").toString());
+            }
+        });
+        MemoryEventStore eventStore = new MemoryEventStore();
+        ConnectClient client = new ConnectClient("", "", server.url("").toString(), eventStore);
+        client.setPendingLease(4, 60000);
+        for (int i = 0; i < 10; i++) {
+            client.add("test", createEvent());
+        }
+
+        final CountDownLatch completed = new CountDownLatch(4);
+        ConnectBatchCallback callback = new ConnectBatchCallback() {
+            @Override
+            public void onSuccess(Map<String, Iterable<EventPushResponse>> details) {
+                completed.countDown();
+            }
+
+            @Override
+            public void onFailure(ConnectException e) {
+            }
+        };
+        for (int i = 0; i < 4; i++) {
+            client.pushPendingAsync(callback);
+        }
+        respond.countDown();
+
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        assertEquals(3, server.getRequestCount());
+        assertEquals(10, sentIds.size());
+        assertEquals(10, new HashSet<Object>(sentIds).size());
+        assertEquals(0, eventStore.getPendingEvents());
+    }
+
+    @Test
+    public void testThatRejectedEventsAreMovedToTheDeadLetterStore() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setBody("{\"test\": [{\"success\": true}, {\"success\": false, \"message\": \"Invalid \\\"type\\\"\"}]}"));
+        MemoryEventStore eventStore = new MemoryEventStore();
+        MemoryEventStore deadLetterStore = new MemoryEventStore();
+        ConnectClient client = new ConnectClient("", "", server.url("").toString(), eventStore);
+        client.setDeadLetterStore(deadLetterStore);
+
+        client.add("test", createEvent());
+        Map<String, Object> invalid = createEvent();
+        invalid.put("type", new Date(0));
+        client.add("test", invalid);
+        Event rejected = toList(eventStore.read("test")).get(1);
+        client.pushPending();
+
+        assertEquals(0, eventStore.getPendingEvents());
+        List<RejectedEvent> deadLetters = toList(client.getDeadLetters().get("test"));
+        assertEquals(1, deadLetters.size());
+        assertEquals("Invalid \"type\"", deadLetters.get(0).getMessage());
+        assertEquals(rejected.getEventStoreId(), deadLetters.get(0).getEvent().getEventStoreId());
+        assertEquals(rejected.getEventJSON(), deadLetters.get(0).getEvent().getEventJSON());
+
+        client.purgeDeadLetters();
+        assertEquals(0, deadLetterStore.getPendingEvents());
+        assertTrue(client.getDeadLetters().isEmpty());
+    }
+
+    @Test
+    public void testThatEventsInFailedRequestsAreNotDeadLettered() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(500));
+        server.enqueue(new MockResponse().setBody("{\"test\": [{\"success\": true}]}"));
+        ConnectAPI connectAPI = new ConnectAPI("", "", server.url("").toString());
+        connectAPI.setMaxBatchEvents(1);
+        connectAPI.setMaxConcurrentBatches(1);
+        MemoryEventStore eventStore = new MemoryEventStore();
+        ConnectClient client = new ConnectClient(connectAPI, eventStore);
+
+        client.add("test", createEvent());
+        client.add("test", createEvent());
+        client.pushPending();
+
+        assertEquals(1, eventStore.getPendingEvents());
+        assertTrue(client.getDeadLetters().isEmpty());
+    }
+
+    @Test
+    public void testThatEventsInAChunkRefusedAsAWholeAreNotDeadLettered() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setBody("{\"test\": [{\"success\": true}, {\"success\": true}]}"));
+        server.enqueue(new MockResponse().setResponseCode(413));
+        ConnectAPI connectAPI = new ConnectAPI("", "", server.url("").toString());
+        connectAPI.setMaxBatchEvents(2);
+        connectAPI.setMaxConcurrentBatches(1);
+        MemoryEventStore eventStore = new MemoryEventStore();
+        ConnectClient client = new ConnectClient(connectAPI, eventStore);
+        client.setDeadLetterStore(new MemoryEventStore());
+
+        for (int i = 0; i < 4; i++) {
+            client.add("test", createEvent());
+        }
+        Map<String, Iterable<EventPushResponse>> details = client.pushPending();
+
+        assertEquals(2, server.getRequestCount());
+        assertEquals(2, ((EventPushResponses) details.get("test")).getSuccessCount());
+        assertEquals(2, eventStore.getPendingEvents());
+        assertTrue(client.getDeadLetters().isEmpty());
+    }
+
+    private static <T> List<T> toList(Iterable<T> items) {
+        List<T> list = new ArrayList<T>();
+        for (T item : items) {
+            list.add(item);
+        }
+        return list;
+    }
+
+    /**
+     * Start pushing automatically and wait for the push of the events left from a previous run, so the pushes
+     * that follow are only triggered by the events the test adds.
+     * @return A {@link Semaphore} released each time an automatic push completes.
+     */
+    private static Semaphore startAutoFlush(ConnectClient client, FlushPolicy policy) throws InterruptedException {
+        final Semaphore flushes = new Semaphore(0);
+        client.startAutoFlush(policy, new ConnectBatchCallback() {
+            @Override
+            public void onSuccess(Map<String, Iterable<EventPushResponse>> details) {
+                flushes.release();
+            }
+
+            @Override
+            public void onFailure(ConnectException e) {
+                flushes.release();
+            }
+        });
+        assertTrue(flushes.tryAcquire(5, TimeUnit.SECONDS));
+        return flushes;
+    }
+
+    private static int countSentEvents(RecordedRequest request, String collection) {
+        Map<String, List<Map<String, Object>>> sentBatch = new Gson().fromJson(request.getBody().readUtf8(),
+                new TypeToken<Map<String, List<Map<String, Object>>>>() {}.getType());
+        return sentBatch.get(collection).size();
+    }
+
+    private static Map<String, Object> createEvent() {
+        Map<String, Object> event = new HashMap<String, Object>();
+        event.put("test", "test");
+        return event;
+    }
+}
@@ -0,0 +1,89 @@
+package io.getconnect.client;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.junit.Assert.assertThat;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import io.getconnect.client.exceptions.InvalidEventException;
+
+public class EventBuilderTest {
+
+    @Test
+    public void testThatBuiltEventsHaveTheSameJSONAsEventsFromMaps() throws InvalidEventException {
+        Date timestamp = new Date(1435723677123L);
+
+        Map<String, Object> nested = new LinkedHashMap<String, Object>();
+        nested.put("depth", 2L);
+        nested.put("empty", new LinkedHashMap<String, Object>());
+
+        Map<String, Object> eventData = new LinkedHashMap<String, Object>();
+        eventData.put("string", "<quoted> & \"escaped\"\n\u00e9\u4e2d\ud83d\ude00\u2028");
+        eventData.put("long", Long.MIN_VALUE);
+        eventData.put("negative", -42L);
+        eventData.put("double", 0.1);
+        eventData.put("boolean", true);
+        eventData.put("nested", nested);
+        eventData.put("null", null);
+        eventData.put("id", "event-id");
+        eventData.put("timestamp", timestamp);
+
+        Event built = new EventBuilder(16)
+                .putString("string", "<quoted> & \"escaped\"\n\u00e9\u4e2d\ud83d\ude00\u2028")
+                .putLong("long", Long.MIN_VALUE)
+                .putLong("negative", -42)
+                .putDouble("double", 0.1)
+                .putBoolean("boolean", true)
+                .beginObject("nested")
+                    .putLong("depth", 2)
+                    .beginObject("empty").endObject()
+                .endObject()
+                .putString("null", null)
+                .putString("id", "event-id")
+                .putDate("timestamp", timestamp)
+                .build();
+
+        assertEquals(new Event(eventData).getEventJSON(), built.getEventJSON());
+        assertEquals("event-id", built.getId());
+    }
+
+    @Test
+    public void testThatTheBuilderAddsDefaultsAndCanBeReused() throws InvalidEventException {
+        EventBuilder builder = new EventBuilder();
+        Event first = builder.putLong("number", 1).build();
+        Event second = builder.putLong("number", 2).build();
+
+        assertEquals(1.0, first.getEventData().get("number"));
+        assertEquals(3, second.getEventData().size());
+        assertEquals(2.0, second.getEventData().get("number"));
+        assertTrue(second.getEventData().get("timestamp") instanceof String);
+        assertTrue(!first.getId().equals(second.getId()));
+        assertTrue(!first.getEventStoreId().equals(second.getEventStoreId()));
+    }
+
+    @Test
+    public void testThatInvalidPropertiesAreReportedWhenBuilt() {
+        EventBuilder builder = new EventBuilder();
+        builder.putLong("valid", 1).putBoolean("invalid.property", false);
+
+        try {
+            builder.build();
+            fail("Expected the event to be invalid");
+        } catch (InvalidEventException e) {
+            assertThat(e.getMessage(), containsString("invalid.property"));
+        }
+
+        try {
+            builder.build();
+            fail("Expected the empty event to be invalid");
+        } catch (InvalidEventException e) {
+            assertThat(e.getMessage(), containsString("no properties"));
+        }
+    }
+}
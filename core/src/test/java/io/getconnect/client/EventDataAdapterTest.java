@@ -0,0 +1,64 @@
+package io.getconnect.client;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class EventDataAdapterTest {
+    private static final Gson gson = GsonUTCDateAdapter.createSerializer();
+    private static final Type eventDataType = new TypeToken<Map<String, Object>>(){}.getType();
+
+    @Test
+    public void testThatEventDataIsSerializedTheSameAsGson() {
+        Map<String, Object> nested = new HashMap<String, Object>();
+        nested.put("count", 3);
+        nested.put("nothing", null);
+
+        Map<String, Object> eventData = new LinkedHashMap<String, Object>();
+        eventData.put("string", "<quoted> & \"escaped\"\n");
+        eventData.put("int", 42);
+        eventData.put("long", 1L << 40);
+        eventData.put("double", 1.0);
+        eventData.put("float", 0.1f);
+        eventData.put("decimal", new BigDecimal("12.50"));
+        eventData.put("boolean", true);
+        eventData.put("char", 'c');
+        eventData.put("date", new Date(1435723677000L));
+        eventData.put("null", null);
+        eventData.put("nested", nested);
+        eventData.put("list", Arrays.asList(1, "two", null, nested));
+        eventData.put("array", new int[] { 1, 2, 3 });
+
+        EventDataAdapter adapter = new EventDataAdapter(gson);
+
+        assertEquals(gson.toJson(eventData, eventDataType), adapter.serialize(eventData));
+    }
+
+    @Test
+    public void testThatEventDataIsDeserializedTheSameAsGson() {
+        String json = "{\"string\":\"value\",\"number\":42,\"boolean\":false,\"null\":null," +
+                "\"nested\":{\"list\":[1.5,\"two\",{\"three\":3}]}}";
+
+        EventDataAdapter adapter = new EventDataAdapter(gson);
+        Map<String, Object> expected = gson.fromJson(json, eventDataType);
+
+        assertEquals(expected, adapter.deserialize(json));
+        assertEquals(gson.toJson(expected, eventDataType), adapter.serialize(adapter.deserialize(json)));
+    }
+
+    @Test
+    public void testThatEmptyJSONIsDeserializedAsNull() {
+        assertNull(new EventDataAdapter(gson).deserialize(""));
+    }
+}
@@ -2,6 +2,7 @@ package io.getconnect.client;
 
 import org.junit.Assert;
 import org.junit.Test;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertSame;
@@ -10,11 +11,15 @@ import static org.hamcrest.CoreMatchers.containsString;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Locale;
+import java.util.List;
 import java.util.Map;
 
+import com.google.gson.JsonSyntaxException;
+
 import io.getconnect.client.exceptions.InvalidEventException;
 
 public class EventTest {
@@ -103,4 +108,54 @@ public class EventTest {
 
         assertThat(eventJSON, containsString(isoDate));
     }
+
+    @Test
+    public void testThatAnInvalidPropertyIsFoundAmongPreviouslyValidatedProperties() {
+        Map<String, Object> eventData = new HashMap<String, Object>();
+        eventData.put("valid", "valid");
+        new Event(eventData);
+
+        eventData.put("invalid.property", "invalid");
+        try {
+            new Event(eventData);
+            Assert.fail("Expected the event to be invalid");
+        } catch (InvalidEventException e) {
+            assertThat(e.getMessage(), containsString("invalid.property"));
+        }
+    }
+
+    @Test
+    public void testThatStoredEventJSONIsSplicedIntoBatchesAsItIs() throws Exception {
+        String storedJSON = "{\"id\":\"stored\",  \"value\":1.50}";
+        List<Event> events = new ArrayList<Event>();
+        events.add(Event.fromEventStore(storedJSON.getBytes("UTF-8"), "store-id"));
+        Map<String, Iterable<Event>> batch = new HashMap<String, Iterable<Event>>();
+        batch.put("test", events);
+
+        assertEquals("{\"test\":[" + storedJSON + "]}", Event.getJSONForEventBatch(batch));
+        assertEquals("stored", events.get(0).getId());
+    }
+
+    @Test(expected = JsonSyntaxException.class)
+    public void testThatAStoredEventMustBeAJSONObject() throws Exception {
+        Event.fromEventStore("{\"id\":\"torn".getBytes("UTF-8"), "store-id");
+    }
+
+    @Test(expected = JsonSyntaxException.class)
+    public void testThatStoredEventJSONMustBeWellFormed() throws Exception {
+        Event.fromEventStore("{\"id\":\"torn\", \"value\": }".getBytes("UTF-8"), "store-id");
+    }
+
+    @Test
+    public void testThatTheEventJSONIsSerializedOnce() {
+        Map<String, Object> eventData = new HashMap<String, Object>();
+        eventData.put("test", "before");
+        Event event = new Event(eventData);
+
+        byte[] eventJSON = event.getEventJSONBytes();
+        eventData.put("test", "after");
+
+        assertSame(eventJSON, event.getEventJSONBytes());
+        assertThat(event.getEventJSON(), containsString("before"));
+    }
 }
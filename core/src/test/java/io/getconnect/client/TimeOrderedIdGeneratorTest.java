@@ -0,0 +1,61 @@
+package io.getconnect.client;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+public class TimeOrderedIdGeneratorTest {
+
+    @Test
+    public void testThatIdsAreVersion7UUIDs() {
+        String id = new TimeOrderedIdGenerator().generateId();
+        UUID uuid = UUID.fromString(id);
+
+        assertEquals(id, uuid.toString());
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        assertTrue(Math.abs((uuid.getMostSignificantBits() >>> 16) - System.currentTimeMillis()) < 60000);
+    }
+
+    @Test
+    public void testThatIdsFromTheSameThreadAreIncreasing() {
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator();
+        String previous = generator.generateId();
+        for (int i = 0; i < 100000; i++) {
+            String id = generator.generateId();
+            assertTrue(id.compareTo(previous) > 0);
+            previous = id;
+        }
+    }
+
+    @Test
+    public void testThatIdsFromDifferentThreadsAreUnique() throws Exception {
+        final TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator();
+        final Set<String> ids = Collections.synchronizedSet(new HashSet<String>());
+        final int threadCount = 8;
+        final int idsPerThread = 10000;
+
+        Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < idsPerThread; j++) {
+                        ids.add(generator.generateId());
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(threadCount * idsPerThread, ids.size());
+    }
+}
@@ -0,0 +1,60 @@
+package io.getconnect.client;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+public class UTCDateFormatTest {
+
+    @Test
+    public void testThatDatesAreFormattedTheSameAsSimpleDateFormat() {
+        DateFormat expected = createSimpleDateFormat();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100000; i++) {
+            // Roughly the years 1300 to 10300, to cover both the fast path and the fallback.
+            Date date = new Date(-21000000000000L + (long) (random.nextDouble() * 284000000000000L));
+            assertEquals(expected.format(date), UTCDateFormat.format(date));
+        }
+    }
+
+    @Test
+    public void testThatFormattedDatesAreParsedTheSameAsSimpleDateFormat() throws Exception {
+        DateFormat expected = createSimpleDateFormat();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100000; i++) {
+            String value = expected.format(new Date((long) (random.nextDouble() * 4102444800000L)));
+            assertEquals(expected.parse(value), UTCDateFormat.parse(value));
+        }
+    }
+
+    @Test
+    public void testThatOutOfRangeFieldsAreParsedLeniently() throws Exception {
+        DateFormat expected = createSimpleDateFormat();
+        String[] values = {
+            "2015-02-29T00:00:00.000Z",
+            "2015-13-01T24:00:60.000Z",
+            "2016-02-29T23:59:59.999Z",
+            "1582-10-10T00:00:00.000Z",
+            "2015-07-01T04:07:57.5Z",
+            "2015-07-01T04:07:57.000Z trailing"
+        };
+
+        for (String value : values) {
+            assertEquals(expected.parse(value), UTCDateFormat.parse(value));
+        }
+    }
+
+    private static DateFormat createSimpleDateFormat() {
+        DateFormat format = new SimpleDateFormat(UTCDateFormat.PATTERN, Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format;
+    }
+}
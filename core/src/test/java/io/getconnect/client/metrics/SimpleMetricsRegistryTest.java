@@ -0,0 +1,64 @@
+package io.getconnect.client.metrics;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+public class SimpleMetricsRegistryTest {
+
+    @Test
+    public void testThatCountersAndGaugesAreReported() {
+        SimpleMetricsRegistry registry = new SimpleMetricsRegistry();
+        registry.counter("requests").increment(2);
+        registry.counter("requests").increment(3);
+        registry.gauge("pending", new Gauge() {
+            @Override
+            public long getValue() {
+                return 7;
+            }
+        });
+
+        assertSame(registry.counter("requests"), registry.counter("requests"));
+        assertEquals(5, registry.getCount("requests"));
+        assertEquals(0, registry.getCount("unknown"));
+        assertEquals(7, registry.getGaugeValue("pending"));
+
+        Map<String, Long> snapshot = registry.snapshot();
+        assertEquals(Long.valueOf(5), snapshot.get("requests"));
+        assertEquals(Long.valueOf(7), snapshot.get("pending"));
+    }
+
+    @Test
+    public void testThatHistogramPercentilesAreWithinTheBucketPrecision() {
+        SimpleMetricsRegistry.SimpleHistogram histogram = new SimpleMetricsRegistry().histogram("latency");
+        for (long value = 1; value <= 10000; value++) {
+            histogram.record(value * 1000);
+        }
+
+        assertEquals(10000, histogram.getCount());
+        assertEquals(10000000, histogram.getMax());
+        assertEquals(5000500.0, histogram.getMean(), 0.001);
+        assertWithinPrecision(5000000, histogram.getPercentile(50));
+        assertWithinPrecision(9900000, histogram.getPercentile(99));
+        assertEquals(10000000, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void testThatSmallAndExtremeValuesAreRecorded() {
+        SimpleMetricsRegistry.SimpleHistogram histogram = new SimpleMetricsRegistry().histogram("sizes");
+        histogram.record(-1);
+        histogram.record(3);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(0, histogram.getPercentile(1));
+        assertEquals(3, histogram.getPercentile(50));
+        assertEquals(Long.MAX_VALUE, histogram.getPercentile(100));
+    }
+
+    private static void assertWithinPrecision(long expected, long actual) {
+        assertTrue(actual + " is not within 12.5% of " + expected, Math.abs(actual - expected) <= expected / 8);
+    }
+}
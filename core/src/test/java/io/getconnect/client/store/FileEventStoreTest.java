@@ -0,0 +1,122 @@
+package io.getconnect.client.store;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.getconnect.client.Event;
+
+public class FileEventStoreTest {
+    private File root;
+
+    @Before
+    public void createRoot() throws IOException {
+        root = File.createTempFile("connect", "");
+        root.delete();
+        root.mkdirs();
+    }
+
+    @After
+    public void deleteRoot() {
+        delete(root);
+    }
+
+    @Test
+    public void testThatAddedEventsAreReadInOrder() throws IOException {
+        FileEventStore store = new FileEventStore("project", root);
+        List<Event> added = addEvents(store, 10);
+
+        List<Event> read = toList(store.read("test"));
+
+        assertEquals(added.size(), read.size());
+        for (int i = 0; i < added.size(); i++) {
+            assertEquals(added.get(i).getEventStoreId(), read.get(i).getEventStoreId());
+            assertEquals(added.get(i).getEventJSON(), read.get(i).getEventJSON());
+        }
+    }
+
+    @Test
+    public void testThatAcknowledgedEventsAreNotRead() throws IOException {
+        FileEventStore store = new FileEventStore("project", root);
+        List<Event> added = addEvents(store, 3);
+
+        store.acknowledge("test", added.get(1));
+
+        List<Event> read = toList(store.readAll().get("test"));
+        assertEquals(2, read.size());
+        assertEquals(added.get(0).getEventStoreId(), read.get(0).getEventStoreId());
+        assertEquals(added.get(2).getEventStoreId(), read.get(1).getEventStoreId());
+    }
+
+    @Test
+    public void testThatPendingEventsAreIndexedWhenTheStoreIsReopened() throws IOException {
+        FileEventStore store = new FileEventStore("project", root);
+        List<Event> added = addEvents(store, 5);
+        store.acknowledge("test", added.get(0));
+
+        FileEventStore reopened = new FileEventStore("project", root);
+        List<Event> read = toList(reopened.read("test"));
+
+        assertEquals(4, read.size());
+        reopened.acknowledge("test", read.get(0));
+        assertEquals(3, toList(new FileEventStore("project", root).read("test")).size());
+    }
+
+    @Test
+    public void testThatAnEventWhoseFileIsCorruptIsMovedAside() throws IOException {
+        FileEventStore store = new FileEventStore("project", root);
+        List<Event> added = addEvents(store, 3);
+
+        File collectionDir = new File(root, "project").listFiles()[0];
+        FileOutputStream out = new FileOutputStream(new File(collectionDir, added.get(1).getEventStoreId() + ".json"));
+        out.write("{\"number\":".getBytes("UTF-8"));
+        out.close();
+
+        List<Event> leased = toList(store.lease(0, 60000).get("test"));
+
+        assertEquals(2, leased.size());
+        assertEquals(2, store.getPendingEvents());
+        assertTrue(new File(collectionDir, added.get(1).getEventStoreId() + ".corrupt").exists());
+        assertEquals(2, new FileEventStore("project", root).getPendingEvents());
+    }
+
+    private static List<Event> addEvents(EventStore store, int count) throws IOException {
+        List<Event> added = new ArrayList<Event>();
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> eventData = new HashMap<String, Object>();
+            eventData.put("number", i);
+            Event event = new Event(eventData);
+            store.add("test", event);
+            added.add(event);
+        }
+        return added;
+    }
+
+    private static List<Event> toList(Iterable<Event> events) {
+        List<Event> list = new ArrayList<Event>();
+        for (Event event : events) {
+            list.add(event);
+        }
+        return list;
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
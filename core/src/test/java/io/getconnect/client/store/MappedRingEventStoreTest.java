@@ -0,0 +1,158 @@
+package io.getconnect.client.store;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.getconnect.client.Event;
+
+public class MappedRingEventStoreTest {
+    private File root;
+
+    @Before
+    public void createRoot() throws IOException {
+        root = File.createTempFile("connect", "");
+        root.delete();
+        root.mkdirs();
+    }
+
+    @After
+    public void deleteRoot() {
+        for (File file : root.listFiles()) {
+            file.delete();
+        }
+        root.delete();
+    }
+
+    @Test
+    public void testThatPendingEventsSurviveReopening() throws IOException {
+        MappedRingEventStore store = new MappedRingEventStore("project", root, 64 * 1024, OverflowPolicy.REJECT);
+        List<Event> added = addEvents(store, "test", 5);
+        addEvents(store, "other", 2);
+        store.acknowledge("test", added.get(0));
+        store.close();
+
+        store = new MappedRingEventStore("project", root, 64 * 1024, OverflowPolicy.REJECT);
+        List<Event> read = toList(store.read("test"));
+
+        assertEquals(4, read.size());
+        assertEquals(added.get(1).getEventStoreId(), read.get(0).getEventStoreId());
+        assertEquals(added.get(1).getId(), read.get(0).getId());
+        assertEquals(2, toList(store.readAll().get("other")).size());
+        assertEquals(6, store.getPendingEvents());
+    }
+
+    @Test
+    public void testThatAFullStoreRejectsEvents() throws IOException {
+        MappedRingEventStore store = new MappedRingEventStore("project", root, 1024, OverflowPolicy.REJECT);
+        try {
+            addEvents(store, "test", 100);
+            fail("Expected the store to be full");
+        } catch (EventStoreFullException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testThatAFullStoreDropsTheOldestEvents() throws IOException {
+        MappedRingEventStore store = new MappedRingEventStore("project", root, 1024, OverflowPolicy.DROP_OLDEST);
+        List<Event> added = addEvents(store, "test", 100);
+
+        List<Event> read = toList(store.read("test"));
+
+        assertEquals(added.get(added.size() - 1).getEventStoreId(), read.get(read.size() - 1).getEventStoreId());
+        assertEquals(added.get(added.size() - read.size()).getEventStoreId(), read.get(0).getEventStoreId());
+    }
+
+    @Test
+    public void testThatAcknowledgingEventsFreesSpace() throws IOException {
+        MappedRingEventStore store = new MappedRingEventStore("project", root, 1024, OverflowPolicy.REJECT);
+        Event previous = addEvents(store, "test", 1).get(0);
+        for (int i = 0; i < 100; i++) {
+            Event next = addEvents(store, "test", 1).get(0);
+            store.acknowledge("test", previous);
+            previous = next;
+        }
+
+        List<Event> read = toList(store.read("test"));
+        assertEquals(1, read.size());
+        assertEquals(previous.getEventStoreId(), read.get(0).getEventStoreId());
+
+        store.acknowledge("test", previous);
+        assertEquals(0, store.getUsedBytes());
+    }
+
+    @Test
+    public void testThatRecoveryStopsAtATornRecord() throws IOException {
+        MappedRingEventStore store = new MappedRingEventStore("project", root, 64 * 1024, OverflowPolicy.REJECT);
+        List<Event> added = addEvents(store, "test", 1);
+        long secondRecord = store.getUsedBytes();
+        addEvents(store, "test", 2);
+        store.close();
+
+        RandomAccessFile file = new RandomAccessFile(new File(root, "project.ring"), "rw");
+        file.seek(32 + secondRecord);
+        file.writeInt(Integer.MAX_VALUE);
+        file.close();
+
+        store = new MappedRingEventStore("project", root, 64 * 1024, OverflowPolicy.REJECT);
+        List<Event> read = toList(store.read("test"));
+        assertEquals(1, read.size());
+        assertEquals(added.get(0).getEventStoreId(), read.get(0).getEventStoreId());
+
+        addEvents(store, "test", 1);
+        assertEquals(2, toList(store.read("test")).size());
+    }
+
+    @Test
+    public void testThatAHeadAfterTheTailIsRecoveredAsEmpty() throws IOException {
+        MappedRingEventStore store = new MappedRingEventStore("project", root, 64 * 1024, OverflowPolicy.REJECT);
+        addEvents(store, "test", 2);
+        store.close();
+
+        // As left by a crash while resetting the ring, after the tail was reset but before the head was.
+        RandomAccessFile file = new RandomAccessFile(new File(root, "project.ring"), "rw");
+        file.seek(8);
+        file.writeLong(4096);
+        file.seek(16);
+        file.writeLong(0);
+        file.close();
+
+        store = new MappedRingEventStore("project", root, 64 * 1024, OverflowPolicy.REJECT);
+        assertEquals(0, store.getUsedBytes());
+        assertEquals(0, toList(store.read("test")).size());
+
+        addEvents(store, "test", 1);
+        assertEquals(1, toList(store.read("test")).size());
+    }
+
+    private static List<Event> addEvents(EventStore store, String collection, int count) throws IOException {
+        List<Event> events = new ArrayList<Event>();
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> eventData = new HashMap<String, Object>();
+            eventData.put("index", i);
+            Event event = new Event(eventData);
+            store.add(collection, event);
+            events.add(event);
+        }
+        return events;
+    }
+
+    private static List<Event> toList(Iterable<Event> events) {
+        List<Event> list = new ArrayList<Event>();
+        for (Event event : events) {
+            list.add(event);
+        }
+        return list;
+    }
+}
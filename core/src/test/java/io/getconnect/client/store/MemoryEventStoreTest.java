@@ -0,0 +1,197 @@
+package io.getconnect.client.store;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.getconnect.client.Event;
+
+public class MemoryEventStoreTest {
+
+    @Test
+    public void testThatEventsAreRejectedWhenTheStoreIsFull() throws IOException {
+        MemoryEventStore store = new MemoryEventStore(2, 0, false, OverflowPolicy.REJECT);
+        store.add("first", createEvent(0));
+        store.add("second", createEvent(1));
+
+        try {
+            store.add("first", createEvent(2));
+            fail("Expected the store to be full");
+        } catch (EventStoreFullException e) {
+            // expected
+        }
+
+        assertEquals(2, store.getPendingEvents());
+        assertEquals(1, store.getRejectedCount());
+    }
+
+    @Test
+    public void testThatTheOldestEventIsDroppedAcrossCollections() throws IOException {
+        MemoryEventStore store = new MemoryEventStore(2, 0, false, OverflowPolicy.DROP_OLDEST);
+        Event oldest = createEvent(0);
+        store.add("first", oldest);
+        store.add("second", createEvent(1));
+        store.add("second", createEvent(2));
+
+        assertEquals(0, toList(store.read("first")).size());
+        assertEquals(2, toList(store.read("second")).size());
+        assertEquals(1, store.getDroppedCount());
+    }
+
+    @Test
+    public void testThatLimitsCanApplyToEachCollection() throws IOException {
+        MemoryEventStore store = new MemoryEventStore(1, 0, true, OverflowPolicy.DROP_OLDEST);
+        store.add("first", createEvent(0));
+        Event newest = createEvent(1);
+        store.add("first", newest);
+        store.add("second", createEvent(2));
+
+        List<Event> first = toList(store.read("first"));
+        assertEquals(1, first.size());
+        assertEquals(newest, first.get(0));
+        assertEquals(2, store.getPendingEvents());
+        assertEquals(1, store.getPendingEvents("second"));
+    }
+
+    @Test
+    public void testThatTheByteLimitIsEnforced() throws IOException {
+        Event event = createEvent(0);
+        int size = event.getEventJSONBytes().length;
+        MemoryEventStore store = new MemoryEventStore(0, size * 2, false, OverflowPolicy.DROP_OLDEST);
+
+        store.add("test", event);
+        store.add("test", createEvent(1));
+        store.add("test", createEvent(2));
+
+        assertEquals(2, store.getPendingEvents());
+        assertTrue(store.getPendingBytes() <= size * 2);
+    }
+
+    @Test
+    public void testThatSamplingKeepsTheStoreWithinItsLimit() throws IOException {
+        MemoryEventStore store = new MemoryEventStore(10, 0, false, OverflowPolicy.SAMPLE);
+        for (int i = 0; i < 1000; i++) {
+            store.add("test", createEvent(i));
+        }
+
+        assertEquals(10, store.getPendingEvents());
+        assertEquals(990, store.getDroppedCount());
+    }
+
+    @Test
+    public void testThatSamplingKeepsEveryCollectionIndexedAsEventsAreAcknowledged() throws IOException {
+        MemoryEventStore store = new MemoryEventStore(10, 0, false, OverflowPolicy.SAMPLE);
+        for (int i = 0; i < 1000; i++) {
+            store.add(i % 2 == 0 ? "even" : "odd", createEvent(i));
+            if (i % 7 == 0) {
+                store.acknowledge("even", store.read("even"));
+            }
+        }
+
+        int pending = 0;
+        for (Iterable<Event> events : store.readAll().values()) {
+            for (Event event : events) {
+                pending++;
+            }
+        }
+        assertEquals(store.getPendingEvents(), pending);
+        assertEquals(pending, store.getPendingEvents("even") + store.getPendingEvents("odd"));
+    }
+
+    @Test
+    public void testThatABlockedAddContinuesOnceAnEventIsAcknowledged() throws Exception {
+        final MemoryEventStore store = new MemoryEventStore(1, 0, false, OverflowPolicy.BLOCK, 5000);
+        final Event first = createEvent(0);
+        store.add("test", first);
+
+        Thread acknowledger = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                    store.acknowledge("test", first);
+                } catch (Exception e) {
+                    // the add below will time out
+                }
+            }
+        });
+        acknowledger.start();
+        store.add("test", createEvent(1));
+        acknowledger.join();
+
+        assertEquals(1, store.getPendingEvents());
+        assertEquals(0, store.getRejectedCount());
+    }
+
+    @Test
+    public void testThatABatchOfEventsIsAcknowledged() throws IOException {
+        MemoryEventStore store = new MemoryEventStore();
+        List<Event> added = new ArrayList<Event>();
+        for (int i = 0; i < 5; i++) {
+            Event event = createEvent(i);
+            store.add("test", event);
+            added.add(event);
+        }
+
+        store.acknowledge("test", added.subList(1, 4));
+
+        List<Event> read = toList(store.read("test"));
+        assertEquals(2, read.size());
+        assertEquals(added.get(0), read.get(0));
+        assertEquals(added.get(4), read.get(1));
+        assertEquals(2, store.getPendingEvents());
+    }
+
+    @Test
+    public void testThatLeasedEventsAreNotLeasedAgainUntilReleased() throws IOException {
+        MemoryEventStore store = new MemoryEventStore();
+        List<Event> added = new ArrayList<Event>();
+        for (int i = 0; i < 5; i++) {
+            Event event = createEvent(i);
+            store.add("test", event);
+            added.add(event);
+        }
+
+        List<Event> first = toList(store.lease(3, 60000).get("test"));
+        List<Event> second = toList(store.lease(3, 60000).get("test"));
+        assertEquals(added.subList(0, 3), first);
+        assertEquals(added.subList(3, 5), second);
+        assertTrue(store.lease(3, 60000).isEmpty());
+
+        store.acknowledge("test", first.subList(0, 1));
+        store.release("test", first);
+        assertEquals(added.subList(1, 3), toList(store.lease(0, 60000).get("test")));
+        assertEquals(4, store.getPendingEvents());
+    }
+
+    @Test
+    public void testThatExpiredLeasesArePendingAgain() throws IOException {
+        MemoryEventStore store = new MemoryEventStore();
+        store.add("test", createEvent(0));
+
+        assertEquals(1, toList(store.lease(1, 0).get("test")).size());
+        assertEquals(1, toList(store.lease(1, 60000).get("test")).size());
+        assertTrue(store.lease(1, 60000).isEmpty());
+    }
+
+    private static Event createEvent(int number) {
+        Map<String, Object> eventData = new HashMap<String, Object>();
+        eventData.put("number", number);
+        return new Event(eventData);
+    }
+
+    private static List<Event> toList(Iterable<Event> events) {
+        List<Event> list = new ArrayList<Event>();
+        for (Event event : events) {
+            list.add(event);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,212 @@
+package io.getconnect.client.store;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.getconnect.client.Event;
+
+public class SegmentedLogEventStoreTest {
+    private File root;
+
+    @Before
+    public void createRoot() throws IOException {
+        root = File.createTempFile("connect", "");
+        root.delete();
+        root.mkdirs();
+    }
+
+    @After
+    public void deleteRoot() {
+        delete(root);
+    }
+
+    @Test
+    public void testThatAddedEventsAreReadInOrder() throws IOException {
+        SegmentedLogEventStore store = new SegmentedLogEventStore("project", root, 256);
+        List<Event> added = addEvents(store, 10);
+
+        List<Event> read = toList(store.read("test"));
+
+        assertEquals(added.size(), read.size());
+        for (int i = 0; i < added.size(); i++) {
+            assertEquals(added.get(i).getEventStoreId(), read.get(i).getEventStoreId());
+            assertEquals(added.get(i).getId(), read.get(i).getId());
+        }
+    }
+
+    @Test
+    public void testThatEventsAreLeasedInOrderAcrossSegments() throws IOException {
+        SegmentedLogEventStore store = new SegmentedLogEventStore("project", root, 256);
+        List<Event> added = addEvents(store, 10);
+
+        List<Event> first = toList(store.lease(4, 60000).get("test"));
+        List<Event> second = toList(store.lease(0, 60000).get("test"));
+
+        assertEquals(4, first.size());
+        assertEquals(6, second.size());
+        assertEquals(added.get(0).getEventStoreId(), first.get(0).getEventStoreId());
+        assertEquals(added.get(4).getEventStoreId(), second.get(0).getEventStoreId());
+
+        store.acknowledge("test", first);
+        store.release("test", second);
+        List<Event> released = toList(store.lease(0, 60000).get("test"));
+        assertEquals(6, released.size());
+        assertEquals(added.get(4).getEventStoreId(), released.get(0).getEventStoreId());
+    }
+
+    @Test
+    public void testThatLeasingSkipsStraightToThePendingRecords() throws IOException {
+        SegmentedLogEventStore store = new SegmentedLogEventStore("project", root);
+        List<Event> added = addEvents(store, 3);
+        store.acknowledge("test", toList(store.lease(1, 60000).get("test")));
+
+        // Overwrite the length of the acknowledged record, so reading the segment from the start would fail.
+        File segment = new File(root, "project").listFiles()[0].listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(".log");
+            }
+        })[0];
+        RandomAccessFile file = new RandomAccessFile(segment, "rw");
+        file.writeInt(Integer.MAX_VALUE);
+        file.close();
+
+        List<Event> leased = toList(store.lease(1, 60000).get("test"));
+        assertEquals(1, leased.size());
+        assertEquals(added.get(1).getEventStoreId(), leased.get(0).getEventStoreId());
+        assertEquals(1, toList(store.lease(0, 60000).get("test")).size());
+    }
+
+    @Test
+    public void testThatAcknowledgedEventsAreNotReadAfterReopening() throws IOException {
+        SegmentedLogEventStore store = new SegmentedLogEventStore("project", root, 256);
+        List<Event> added = addEvents(store, 10);
+        store.acknowledge("test", added.get(0));
+        store.acknowledge("test", added.get(5));
+        store.close();
+
+        store = new SegmentedLogEventStore("project", root, 256);
+        List<Event> read = toList(store.readAll().get("test"));
+
+        assertEquals(8, read.size());
+        assertEquals(added.get(1).getEventStoreId(), read.get(0).getEventStoreId());
+    }
+
+    @Test
+    public void testThatFullyAcknowledgedSegmentsAreDeleted() throws IOException {
+        SegmentedLogEventStore store = new SegmentedLogEventStore("project", root, 256);
+        List<Event> added = addEvents(store, 10);
+        File collectionDir = new File(root, "project").listFiles()[0];
+
+        for (Event event : added) {
+            store.acknowledge("test", event);
+        }
+
+        assertEquals(0, collectionDir.listFiles().length);
+        assertEquals(0, toList(store.read("test")).size());
+    }
+
+    @Test
+    public void testThatABatchOfAcknowledgementsSurvivesReopening() throws IOException {
+        SegmentedLogEventStore store = new SegmentedLogEventStore("project", root, 256);
+        List<Event> added = addEvents(store, 10);
+
+        store.acknowledge("test", added.subList(0, 7));
+        store.close();
+
+        List<Event> read = toList(new SegmentedLogEventStore("project", root, 256).read("test"));
+        assertEquals(3, read.size());
+        assertEquals(added.get(7).getEventStoreId(), read.get(0).getEventStoreId());
+    }
+
+    @Test
+    public void testThatAPartiallyWrittenRecordIsDiscarded() throws IOException {
+        SegmentedLogEventStore store = new SegmentedLogEventStore("project", root);
+        addEvents(store, 3);
+        store.close();
+
+        File segment = new File(root, "project").listFiles()[0].listFiles()[0];
+        FileOutputStream out = new FileOutputStream(segment, true);
+        out.write(new byte[] { 0, 0, 1, 0, 0, 5 });
+        out.close();
+
+        store = new SegmentedLogEventStore("project", root);
+        addEvents(store, 1);
+
+        assertEquals(4, toList(store.read("test")).size());
+    }
+
+    @Test
+    public void testThatACorruptRecordIsDiscarded() throws IOException {
+        SegmentedLogEventStore store = new SegmentedLogEventStore("project", root);
+        addEvents(store, 2);
+        store.close();
+
+        // A record whose event store ID is longer than the record.
+        File segment = new File(root, "project").listFiles()[0].listFiles()[0];
+        FileOutputStream out = new FileOutputStream(segment, true);
+        out.write(new byte[] { 0, 0, 0, 4, 0, 9, '{', '}' });
+        out.close();
+
+        store = new SegmentedLogEventStore("project", root);
+        addEvents(store, 1);
+
+        assertEquals(3, toList(store.read("test")).size());
+    }
+
+    @Test
+    public void testThatFilesThatAreNotSegmentsAreIgnored() throws IOException {
+        SegmentedLogEventStore store = new SegmentedLogEventStore("project", root);
+        addEvents(store, 2);
+        store.close();
+
+        File collectionDir = new File(root, "project").listFiles()[0];
+        new FileOutputStream(new File(collectionDir, "notes.log")).close();
+
+        store = new SegmentedLogEventStore("project", root);
+
+        assertEquals(2, toList(store.read("test")).size());
+    }
+
+    private static List<Event> addEvents(EventStore store, int count) throws IOException {
+        List<Event> events = new ArrayList<Event>();
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> eventData = new HashMap<String, Object>();
+            eventData.put("index", i);
+            Event event = new Event(eventData);
+            store.add("test", event);
+            events.add(event);
+        }
+        return events;
+    }
+
+    private static List<Event> toList(Iterable<Event> events) {
+        List<Event> list = new ArrayList<Event>();
+        for (Event event : events) {
+            list.add(event);
+        }
+        return list;
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
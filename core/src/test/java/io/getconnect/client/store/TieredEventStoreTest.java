@@ -0,0 +1,135 @@
+package io.getconnect.client.store;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.getconnect.client.Event;
+
+public class TieredEventStoreTest {
+    private File root;
+
+    @Before
+    public void createRoot() throws IOException {
+        root = File.createTempFile("connect", "");
+        root.delete();
+        root.mkdirs();
+    }
+
+    @After
+    public void deleteRoot() {
+        delete(root);
+    }
+
+    @Test
+    public void testThatEventsStayInMemoryUnderTheThreshold() throws IOException {
+        MemoryEventStore spillStore = new MemoryEventStore();
+        TieredEventStore store = new TieredEventStore(spillStore, 10, 0);
+        addEvents(store, 10);
+
+        assertEquals(10, store.getMemoryEvents());
+        assertEquals(0, spillStore.getPendingEvents());
+        assertEquals(10, toList(store.read("test")).size());
+    }
+
+    @Test
+    public void testThatTheOldestEventsAreSpilledAndReadFirst() throws IOException {
+        MemoryEventStore spillStore = new MemoryEventStore();
+        TieredEventStore store = new TieredEventStore(spillStore, 3, 0);
+        List<Event> added = addEvents(store, 5);
+
+        assertEquals(3, store.getMemoryEvents());
+        assertEquals(2, store.getSpilledCount());
+
+        List<Event> read = toList(store.readAll().get("test"));
+        assertEquals(added, read);
+
+        store.acknowledge("test", added.get(0));
+        store.acknowledge("test", added.get(4));
+        assertEquals(1, spillStore.getPendingEvents());
+        assertEquals(2, store.getMemoryEvents());
+    }
+
+    @Test
+    public void testThatPendingEventsIncludeEventsSpilledBeforeARestart() throws IOException {
+        SegmentedLogEventStore spillStore = new SegmentedLogEventStore("project", root);
+        TieredEventStore store = new TieredEventStore(spillStore, 2, 0);
+        addEvents(store, 5);
+        assertEquals(5, store.getPendingEvents());
+        spillStore.close();
+
+        store = new TieredEventStore(new SegmentedLogEventStore("project", root), 2, 0);
+        addEvents(store, 1);
+
+        assertEquals(4, store.getPendingEvents());
+    }
+
+    @Test
+    public void testThatSpilledEventsAreLeasedFirst() throws IOException {
+        MemoryEventStore spillStore = new MemoryEventStore();
+        TieredEventStore store = new TieredEventStore(spillStore, 3, 0);
+        List<Event> added = addEvents(store, 5);
+
+        assertEquals(added.subList(0, 3), toList(store.lease(3, 60000).get("test")));
+        // A leased event in memory stays leased once it is spilled.
+        addEvents(store, 1);
+        assertEquals(added.subList(3, 5), toList(store.lease(2, 60000).get("test")));
+
+        store.release("test", added.subList(0, 3));
+        assertEquals(added.subList(0, 3), toList(store.lease(3, 60000).get("test")));
+    }
+
+    @Test
+    public void testThatSpilledEventsAreRecoveredOnRestart() throws IOException {
+        TieredEventStore store = new TieredEventStore(new SegmentedLogEventStore("project", root), 2, 0);
+        List<Event> added = addEvents(store, 5);
+        store.close();
+
+        TieredEventStore reopened = new TieredEventStore(new SegmentedLogEventStore("project", root), 2, 0);
+        List<Event> read = toList(reopened.read("test"));
+
+        assertEquals(added.size(), read.size());
+        for (int i = 0; i < added.size(); i++) {
+            assertEquals(added.get(i).getEventStoreId(), read.get(i).getEventStoreId());
+        }
+        reopened.close();
+    }
+
+    private static List<Event> addEvents(EventStore store, int count) throws IOException {
+        List<Event> added = new ArrayList<Event>();
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> eventData = new HashMap<String, Object>();
+            eventData.put("number", i);
+            Event event = new Event(eventData);
+            store.add("test", event);
+            added.add(event);
+        }
+        return added;
+    }
+
+    private static List<Event> toList(Iterable<Event> events) {
+        List<Event> list = new ArrayList<Event>();
+        for (Event event : events) {
+            list.add(event);
+        }
+        return list;
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
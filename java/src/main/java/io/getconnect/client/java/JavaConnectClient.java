@@ -1,6 +1,8 @@
 package io.getconnect.client.java;
 
+import io.getconnect.client.ConnectAPI;
 import io.getconnect.client.ConnectClient;
+import io.getconnect.client.store.EventStore;
 import io.getconnect.client.store.FileEventStore;
 import io.getconnect.client.store.MemoryEventStore;
 
@@ -29,6 +31,25 @@ public class JavaConnectClient extends ConnectClient {
         super(projectId, apiKey, null, new FileEventStore(projectId, new File(eventStoreDir)));
     }
 
+    /**
+     * Creates a new {@link ConnectClient} for Java with the specified event store.
+     * @param projectId ID of the project to which to push events.
+     * @param apiKey API key used to access the project (this must be a push or push/query key).
+     * @param eventStore EventStore used to store events pending push.
+     */
+    public JavaConnectClient(String projectId, String apiKey, EventStore eventStore) {
+        super(projectId, apiKey, null, eventStore);
+    }
+
+    /**
+     * Creates a new {@link ConnectClient} for Java with the specified API client and event store.
+     * @param connectAPI The {@link ConnectAPI} used to push events, e.g. with compression enabled.
+     * @param eventStore EventStore used to store events pending push.
+     */
+    public JavaConnectClient(ConnectAPI connectAPI, EventStore eventStore) {
+        super(connectAPI, eventStore);
+    }
+
     /**
      * Encrypt filtered key for use with the Connect API.
      * @param key the definition of the filtered key.